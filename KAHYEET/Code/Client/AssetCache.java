@@ -0,0 +1,216 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+
+/**
+ * AssetCache class keeps the media of questions on disk, keyed by the SHA-256 of their content.
+ * Assets downloaded once are reused in every later session. Missing assets are requested from the server
+ * with ASSET_GET and written chunk by chunk as they arrive, then verified against their hash.
+ * Hashes come from the server and name files, so anything but 64 lowercase hex digits is refused.
+ * A download that receives nothing for DOWNLOAD_TIMEOUT is abandoned and requested again when next needed.
+ */
+public class AssetCache {
+    private static final File CACHE_DIRECTORY = new File("cache");
+    private static final int HASH_LENGTH = 64; // SHA-256 in hex
+    private static final long DOWNLOAD_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(15);
+
+    private final Client client;
+    private final Set<String> available = ConcurrentHashMap.newKeySet(); // Hashes of verified files on disk
+    private final Map<String, Download> downloads = new ConcurrentHashMap<>(); // Transfers in progress
+    private volatile Consumer<String> listener; // Notified on the event dispatch thread when an asset is ready
+
+    /**
+     * Download class holds the state of a single transfer.
+     */
+    private static class Download {
+        private final File partFile;
+        private final OutputStream out;
+        private final MessageDigest digest;
+        private volatile long lastActivityNanos = System.nanoTime(); // Request or last chunk
+
+        private Download(File partFile) throws IOException {
+            this.partFile = partFile;
+            this.out = new FileOutputStream(partFile);
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Constructor for AssetCache. Indexes the assets already on disk.
+     * @param client The client used to request assets.
+     */
+    public AssetCache(Client client) {
+        this.client = client;
+        CACHE_DIRECTORY.mkdirs();
+        String[] names = CACHE_DIRECTORY.list();
+        if (names != null) {
+            for (String name : names) {
+                if (isValidHash(name)) { // Completed files are named by their hash
+                    available.add(name);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that a hash is a SHA-256 in lowercase hex, so it can safely name a file in the cache.
+     * @param hash The hash.
+     * @return True if the hash is exactly 64 lowercase hex digits.
+     */
+    public static boolean isValidHash(String hash) {
+        if (hash == null || hash.length() != HASH_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            char c = hash.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void setListener(Consumer<String> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Checks if an asset is on disk.
+     * @param hash The hash of the asset.
+     * @return True if the asset can be used, false otherwise.
+     */
+    public boolean isAvailable(String hash) {
+        return available.contains(hash);
+    }
+
+    /**
+     * Gets the file of an asset.
+     * @param hash The hash of the asset.
+     * @return The file in the cache directory.
+     */
+    public File getFile(String hash) {
+        return new File(CACHE_DIRECTORY, hash);
+    }
+
+    /**
+     * Requests an asset from the server unless it is already on disk or being downloaded.
+     * A download that stalled is abandoned and requested again.
+     * @param hash The hash of the asset.
+     */
+    public void request(String hash) {
+        if (!isValidHash(hash)) {
+            if (hash != null) {
+                System.out.println("Invalid asset hash from server: " + hash);
+            }
+            return;
+        }
+        if (available.contains(hash)) {
+            return;
+        }
+        Download pending = downloads.get(hash);
+        if (pending != null) {
+            if (System.nanoTime() - pending.lastActivityNanos < DOWNLOAD_TIMEOUT_NANOS) {
+                return;
+            }
+            System.out.println("Download of asset " + hash + " timed out, requesting it again.");
+            onMissing(hash);
+        }
+        try {
+            downloads.put(hash, new Download(new File(CACHE_DIRECTORY, hash + ".part")));
+            client.sendMessageToServer("ASSET_GET:" + hash);
+        } catch (IOException e) {
+            System.out.println("Unable to cache asset " + hash + ".");
+        }
+    }
+
+    /**
+     * Handles an ASSET_DATA message. Runs on the listener thread.
+     * @param message The message, ASSET_DATA:hash:base64.
+     */
+    public void onData(String message) {
+        int separator = message.indexOf(':', 11);
+        if (separator < 0) {
+            return;
+        }
+        Download download = downloads.get(message.substring(11, separator));
+        if (download == null) {
+            return;
+        }
+        download.lastActivityNanos = System.nanoTime();
+        try {
+            byte[] chunk = Base64.getDecoder().decode(message.substring(separator + 1));
+            download.out.write(chunk);
+            download.digest.update(chunk);
+        } catch (IOException | IllegalArgumentException e) {
+            onMissing(message.substring(11, separator));
+        }
+    }
+
+    /**
+     * Handles an ASSET_END message: verifies the hash and publishes the file. Runs on the listener thread.
+     * @param hash The hash of the asset.
+     */
+    public void onEnd(String hash) {
+        Download download = downloads.remove(hash);
+        if (download == null) {
+            return;
+        }
+        try {
+            download.out.close();
+            StringBuilder hex = new StringBuilder();
+            for (byte b : download.digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            if (hex.toString().equals(hash) && download.partFile.renameTo(getFile(hash))) {
+                available.add(hash);
+                Consumer<String> current = listener;
+                if (current != null) {
+                    SwingUtilities.invokeLater(() -> current.accept(hash));
+                }
+            } else {
+                System.out.println("Asset " + hash + " is corrupted.");
+                download.partFile.delete();
+            }
+        } catch (IOException e) {
+            download.partFile.delete();
+        }
+    }
+
+    /**
+     * Handles an ASSET_MISSING message or a failed transfer.
+     * @param hash The hash of the asset.
+     */
+    public void onMissing(String hash) {
+        Download download = downloads.remove(hash);
+        if (download != null) {
+            try {
+                download.out.close();
+            } catch (IOException ignored) {
+            }
+            download.partFile.delete();
+        }
+    }
+
+    /**
+     * Abandons every download in progress, when the connection is lost.
+     */
+    public void close() {
+        for (String hash : downloads.keySet()) {
+            onMissing(hash);
+        }
+    }
+}
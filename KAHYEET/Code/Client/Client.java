@@ -1,11 +1,14 @@
 import java.io.*;
 import java.net.*;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import javax.swing.JDialog;
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 
 /**
@@ -15,16 +18,18 @@ import javax.swing.Timer;
 public class Client {
     private Socket socket;
     private BufferedReader reader;
-    private PrintWriter writer;
+    private Outbox outbox; // Outbound queue written by its own thread
+    private AssetCache assetCache; // Media of questions cached on disk
     private String username;
+    private String team; // Empty when playing alone
     private WaitUI waitUI;
+    private final Set<String> waitingPlayers = new LinkedHashSet<>(); // Players in the lobby, confined to the event dispatch thread
     private LoginUI loginUI;
     private List<Question> questions = new ArrayList<>();
     private GameUI gameUI;
+    private LeaderUI leaderUI;
     private boolean connected = false;
     private boolean finished = false;
-    private boolean shuffleQuestions = false;
-    private boolean shuffleAnswers = false;
     private boolean dontShowAnswers = false;
     private boolean noBonusPoint = false;
     private int questionTimer;
@@ -32,63 +37,156 @@ public class Client {
     private Sound leaderboardSound;
     private Sound backgroundMusic;
 
+    private static final int HANDSHAKE_TIMEOUT = 5000; // Time to wait for the answer to USERNAME in milliseconds
+
     /**
      * Constructor for Client.
      * @param loginUI The login UI.
      * @param username The username of the player.
-     * @param address The server address.
-     * @param port The server port.
      */
-    public Client(LoginUI loginUI, String username, String address, int port) {
+    private Client(LoginUI loginUI, String username) {
         this.loginUI = loginUI;
         this.username = username;
-        connectToServer(address, port);
     }
 
     /**
-     * Connects to the server and starts communication.
+     * Connects to the server and performs the handshake without blocking the calling thread.
+     * @param loginUI The login UI.
+     * @param username The username of the player.
+     * @param team The team of the player, empty to play alone.
      * @param address The server address.
      * @param port The server port.
+     * @return A future completed with the connected client, or with an IOException whose message can be shown to the user.
      */
-    private void connectToServer(String address, int port) {
+    public static CompletableFuture<Client> connect(LoginUI loginUI, String username, String team, String address, int port) {
+        Client client = new Client(loginUI, username);
+        client.team = team;
+        return Connector.connect(address, port).thenApply(socket -> {
+            try {
+                client.startCommunication(socket);
+                return client;
+            } catch (IOException e) {
+                if (client.outbox != null) {
+                    client.outbox.close();
+                }
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                }
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Performs the handshake on a connected socket and starts communication. Runs on a connector thread.
+     * @param socket The connected socket.
+     * @throws IOException If the handshake fails, with a message that can be shown to the user.
+     */
+    private void startCommunication(Socket socket) throws IOException {
+        this.socket = socket;
+        socket.setTcpNoDelay(true); // Every message is flushed explicitly, so Nagle would only delay answers
+        reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        outbox = new Outbox(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream())));
+        outbox.start();
+        assetCache = new AssetCache(this);
+
+        // Send username to server
+        sendMessageToServer("USERNAME:" + username + (team.isEmpty() ? "" : "\tTEAM:" + team));
+        String serverResponse;
+        socket.setSoTimeout(HANDSHAKE_TIMEOUT);
         try {
-            socket = new Socket(address, port);
-            reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            writer = new PrintWriter(socket.getOutputStream(), true);
+            serverResponse = reader.readLine();
+        } catch (SocketTimeoutException e) {
+            throw new IOException("The server did not answer in time.");
+        }
+        socket.setSoTimeout(0); // Liveness is checked by the server heartbeat from now on
+        if (serverResponse == null) {
+            throw new IOException("Unable to establish a connection.");
+        } else if (serverResponse.startsWith("ERROR")) {
+            throw new IOException(serverResponse);
+        }
+        handleRosterMessage(serverResponse); // The server answers with the players already in the lobby
 
-            // Send username to server
-            sendMessageToServer("USERNAME:" + username);
-            String serverResponse = reader.readLine();
-            if (serverResponse != null && serverResponse.startsWith("ERROR")) {
-                loginUI.showMessage(serverResponse);
-                socket.close();
-                return;
-            }
+        leaderboardSound = new Sound("show_leaderboard.wav");
+        backgroundMusic = new Sound("background_game.wav");
 
-            leaderboardSound = new Sound("show_leaderboard.wav");
-            backgroundMusic = new Sound("background_game.wav");
-            
-            // Start a thread to listen for messages from the server
-            Thread listenThread = new Thread(new ClientListener());
-            listenThread.start();
+        // Start a thread to listen for messages from the server
+        Thread listenThread = new Thread(new ClientListener());
+        listenThread.start();
+        SwingUtilities.invokeLater(() -> {
             waitUI = new WaitUI(username);
-            connected = true;
-        } catch (UnknownHostException e) {
-            loginUI.showMessage("Invalid server address.");
-        } catch (IOException e) {
-            loginUI.showMessage("Unable to establish a connection.");
+            waitUI.updateWaitingPlayers(new ArrayList<>(waitingPlayers));
+        });
+        connected = true;
+    }
+
+    /**
+     * Applies a roster message to the list of waiting players: a full UPDATE_WAITING_LIST snapshot,
+     * or a WAITING_JOIN or WAITING_LEAVE delta. The list is only touched on the event dispatch thread.
+     * @param message The message received from the server.
+     */
+    private void handleRosterMessage(String message) {
+        int separator = message.indexOf(':');
+        if (separator < 0) {
+            return;
+        }
+        String command = message.substring(0, separator);
+        List<String> usernames = new ArrayList<>();
+        for (String username : message.substring(separator + 1).split(",")) {
+            if (!username.isEmpty()) {
+                usernames.add(username);
+            }
         }
+        SwingUtilities.invokeLater(() -> {
+            if (command.equals("UPDATE_WAITING_LIST")) {
+                if (!waitingPlayers.equals(new LinkedHashSet<>(usernames))) {
+                    waitingPlayers.clear();
+                    waitingPlayers.addAll(usernames);
+                    if (waitUI != null) {
+                        waitUI.updateWaitingPlayers(usernames);
+                    }
+                }
+            } else if (command.equals("WAITING_JOIN")) {
+                for (String username : usernames) {
+                    if (waitingPlayers.add(username) && waitUI != null) {
+                        waitUI.addWaitingPlayer(username);
+                    }
+                }
+            } else if (command.equals("WAITING_LEAVE")) {
+                for (String username : usernames) {
+                    if (waitingPlayers.remove(username) && waitUI != null) {
+                        waitUI.removeWaitingPlayer(username);
+                    }
+                }
+            }
+        });
     }
 
     /**
-     * Sends a message to the server.
+     * Sends a message to the server. Never blocks: the message is written by the outbox thread.
      * @param message The message to send.
      */
     public void sendMessageToServer(String message) {
-        writer.println(message);  // Send message to server
+        outbox.send(message);  // Send message to server
         System.out.println("Sent to server: " + message);
     }
 
+    /**
+     * Sends several messages to the server in a single flush, for example the answer and the score of a question.
+     * @param messages The messages to send.
+     */
+    public void sendMessagesToServer(String... messages) {
+        outbox.send(messages);
+        for (String message : messages) {
+            System.out.println("Sent to server: " + message);
+        }
+    }
+
+    public AssetCache getAssetCache() {
+        return assetCache;
+    }
+
     public boolean isConnected() {
         return connected; // Return connection status
     }
@@ -101,14 +199,6 @@ public class Client {
         this.finished = finished;
     }
 
-    public boolean isShuffleQuestions() {
-        return shuffleQuestions;
-    }
-
-    public boolean isShuffleAnswers() {
-        return shuffleAnswers;
-    }
-
     public boolean isDontShowAnswers() {
         return dontShowAnswers;
     }
@@ -117,14 +207,6 @@ public class Client {
         return noBonusPoint;
     }
 
-    public void setShuffleQuestions(boolean shuffleQuestions) {
-        this.shuffleQuestions = shuffleQuestions;
-    }
-
-    public void setShuffleAnswers(boolean shuffleAnswers) {
-        this.shuffleAnswers = shuffleAnswers;
-    }
-
     public void setDontShowAnswers(boolean dontShowAnswers) {
         this.dontShowAnswers = dontShowAnswers;
     }
@@ -133,10 +215,35 @@ public class Client {
         this.noBonusPoint = noBonusPoint;
     }
 
+    /**
+     * Closes the windows of the last game and opens the waiting room. Runs on the event dispatch thread.
+     */
+    private void returnToLobby() {
+        if (gameUI != null) {
+            gameUI.close();
+            gameUI = null;
+        }
+        if (leaderUI != null) {
+            leaderUI.dispose();
+            leaderUI = null;
+        }
+        if (backgroundMusic != null) {
+            backgroundMusic.stop();
+        }
+        if (waitUI == null || !waitUI.isDisplayable()) {
+            waitUI = new WaitUI(username);
+            waitUI.updateWaitingPlayers(new ArrayList<>(waitingPlayers));
+        }
+    }
+
     /**
      * Handles connection loss by showing a dialog and closing the application.
      */
     private void handleConnectionLoss() {
+        outbox.close(); // Ends the writer thread with the connection
+        if (assetCache != null) {
+            assetCache.close(); // Partial downloads cannot complete anymore
+        }
         // Create a JOptionPane to notify about connection loss
         JOptionPane optionPane = new JOptionPane("Connection to server lost.", JOptionPane.WARNING_MESSAGE);
         JDialog dialog = optionPane.createDialog(loginUI, "Connection Lost");
@@ -169,48 +276,30 @@ public class Client {
             try {
                 String serverMessage;
                 StringBuilder scoreData = new StringBuilder();  // Buffer for score data
-                List<String> currentOptions = new ArrayList<>(); // Temporary options storage
-                String currentQuestionText = null; // Temporary question text storage
-                int correctAnswerIndex = -1;
+                StringBuilder teamData = new StringBuilder();  // Buffer for the team leaderboard, empty without teams
+                QuestionDecoder questionDecoder = new QuestionDecoder(questions);
                 while ((serverMessage = reader.readLine()) != null) {
-                    if (serverMessage.equals("KICK")) {
+                    if (serverMessage.equals("PING")) {
+                        outbox.sendDroppable("PONG"); // Heartbeat reply, not logged
+                    }
+                    else if (serverMessage.startsWith("ASSET_DATA:")) {
+                        assetCache.onData(serverMessage);
+                    } else if (serverMessage.startsWith("ASSET_END:")) {
+                        assetCache.onEnd(serverMessage.substring(10));
+                    } else if (serverMessage.startsWith("ASSET_MISSING:")) {
+                        assetCache.onMissing(serverMessage.substring(14));
+                    }
+                    else if (serverMessage.equals("KICK")) {
                         handleConnectionLoss();
                     }
                     // QUESTION
                     else if (serverMessage.startsWith("QUESTION:")) {
-                        String line = serverMessage.substring(9).trim();
-
-                        if (line.isEmpty()) {
-                            continue;
-                        } else if (currentQuestionText == null) {
-                            // Set question text
-                            currentQuestionText = line;
-                        } else {
-                            // Process options
-                            if (line.endsWith("_@#")) {
-                                currentOptions.add(line.replace("_@#", ""));
-                                correctAnswerIndex = currentOptions.size() - 1;
-                            } else {
-                                currentOptions.add(line);
-                            }
-
-                            // When four options are collected, add the question
-                            if (currentOptions.size() == 4) {
-                                correctAnswerIndex = shuffleOptionsWithPrefixes(currentOptions, correctAnswerIndex);
-                                questions.add(new Question(currentQuestionText, new ArrayList<>(currentOptions), correctAnswerIndex));
-
-                                currentQuestionText = null;
-                                currentOptions.clear();
-                                correctAnswerIndex = -1;
-                            }
-                        }
+                        questionDecoder.feed(serverMessage, 9);
                     } else if (serverMessage.equals("QUESTION_END")) {
-                        if (isShuffleQuestions()) Collections.shuffle(questions);
-                    // SHUFFLE
-                    } else if (serverMessage.equals("SHUFFLE_QUESTIONS")) {
-                        setShuffleQuestions(true);
-                    } else if (serverMessage.equals("SHUFFLE_ANSWERS")) {
-                        setShuffleAnswers(true);
+                        questionDecoder.finish();
+                        for (int i = 0; i < Math.min(questions.size(), 4); i++) {
+                            assetCache.request(questions.get(i).getMediaHash()); // Media of the first questions, before the game starts
+                        }
                     // SHOW_ASWERS
                     } else if (serverMessage.equals("DONT_SHOW_TRUE_ANSWERS")) {
                         setDontShowAnswers(true);
@@ -219,36 +308,52 @@ public class Client {
                         setNoBonusPoint(true);
                     // START_GAME
                     } else if (serverMessage.equals("START_GAME")) {
-                        if (waitUI != null) {
-                            waitUI.close();
-                        }
-                        gameUI = new GameUI(Client.this, username, getQuestionTimer(), questions);
-                        // Play background music when entering GameUI
-                        backgroundMusic.playLoop();
+                        SwingUtilities.invokeLater(() -> {
+                            if (waitUI != null) {
+                                waitUI.close();
+                            }
+                            gameUI = new GameUI(Client.this, username, getQuestionTimer(), questions);
+                            // Play background music when entering GameUI
+                            backgroundMusic.playLoop();
+                        });
                     // TIMER
                     } else if (serverMessage.startsWith("TIMER:")) {
                         questionTimer = Integer.parseInt(serverMessage.substring(6));
-                    // UPDATE_WAITING_LIST
-                    } else if (serverMessage.startsWith("UPDATE_WAITING_LIST:")) {
-                        String[] usernames = serverMessage.substring(20).split(",");
-                        List<String> usernameList = Arrays.asList(usernames);
-                        if (waitUI != null) {
-                        waitUI.updateWaitingPlayers(usernameList);
-                        }
+                    // UPDATE_WAITING_LIST, WAITING_JOIN, WAITING_LEAVE
+                    } else if (serverMessage.startsWith("UPDATE_WAITING_LIST:") || serverMessage.startsWith("WAITING_")) {
+                        handleRosterMessage(serverMessage);
                     // FINISH
                     } else if (serverMessage.equals("FINISH")) {
-                        gameUI.finish();
+                        SwingUtilities.invokeLater(() -> {
+                            if (gameUI != null) {
+                                gameUI.finish();
+                            }
+                        });
                     // SHOW_LEADERBOARD
                     } else if (serverMessage.equals("SHOW_LEADERBOARD")) {
                         scoreData.setLength(0);  // Clear buffer before receiving new score data
+                        teamData.setLength(0);
                     } else if (serverMessage.startsWith("SCORE_DATA:")) {
                         scoreData.append(serverMessage.substring(11)).append("\n");  // Accumulate score data
+                    } else if (serverMessage.startsWith("TEAM_DATA:")) {
+                        teamData.append(serverMessage.substring(10)).append("\n");
                     } else if (serverMessage.equals("SCORE_DATA_END")) {
                         if (backgroundMusic != null) {
                             backgroundMusic.stop();
                         }
                         leaderboardSound.playOnce();
-                        new LeaderUI(username, scoreData.toString());  // Pass accumulated score data to LeaderUI
+                        String leaderboard = scoreData.toString();
+                        String teamLeaderboard = teamData.toString();
+                        SwingUtilities.invokeLater(() -> leaderUI = new LeaderUI(username, leaderboard, team, teamLeaderboard));  // Pass accumulated score data to LeaderUI
+                    // NEW_GAME
+                    } else if (serverMessage.equals("NEW_GAME")) {
+                        // The server went back to the lobby: forget the last game and wait for the next one
+                        questions = new ArrayList<>();
+                        questionDecoder = new QuestionDecoder(questions);
+                        setDontShowAnswers(false);
+                        setNoBonusPoint(false);
+                        setFinished(false);
+                        SwingUtilities.invokeLater(() -> returnToLobby());
                     }
                     // Add more server messages here
                 }
@@ -259,44 +364,6 @@ public class Client {
         }
     }
 
-    /**
-     * Shuffles the options with prefixes and updates the correct answer index.
-     * @param options The list of options.
-     * @param correctIndex The index of the correct answer.
-     * @return The new index of the correct answer after shuffling.
-     */
-    private int shuffleOptionsWithPrefixes(List<String> options, int correctIndex) {
-        List<String> prefixedOptions = new ArrayList<>();
-        int newCorrectAnswerIndex = correctIndex;
-    
-        if (isShuffleAnswers()) {
-            // Shuffle indices if shuffling is enabled
-            List<Integer> indices = Arrays.asList(0, 1, 2, 3);
-            Collections.shuffle(indices);
-    
-            // Shuffle options and add prefixes
-            for (int i = 0; i < indices.size(); i++) {
-                int originalIndex = indices.get(i);
-                String prefix = (char) ('A' + i) + ". ";
-                prefixedOptions.add(prefix + options.get(originalIndex));
-    
-                if (originalIndex == correctIndex) {
-                    newCorrectAnswerIndex = i; // Update the correct answer index based on shuffled order
-                }
-            }
-        } else {
-            // No shuffle: Add prefixes in original order
-            for (int i = 0; i < options.size(); i++) {
-                String prefix = (char) ('A' + i) + ". ";
-                prefixedOptions.add(prefix + options.get(i));
-            }
-        }
-    
-        options.clear();
-        options.addAll(prefixedOptions);
-        return newCorrectAnswerIndex;
-    }
-
     public int getQuestionTimer() {
         return questionTimer * 1000;
     }
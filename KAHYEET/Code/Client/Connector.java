@@ -0,0 +1,67 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connector class opens connections to the server off the Swing thread.
+ * The host is resolved in the background and every resolved address is tried in parallel with an explicit timeout;
+ * the first socket to connect wins and the others are closed.
+ */
+public class Connector {
+    public static final int CONNECT_TIMEOUT = 3000; // Timeout of a single connection attempt in milliseconds
+
+    private static final ExecutorService pool = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "Connector");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Connector() {
+    }
+
+    /**
+     * Connects to the server asynchronously.
+     * @param host The server host name or address.
+     * @param port The server port.
+     * @return A future completed with the connected socket, or with an IOException whose message can be shown to the user.
+     */
+    public static CompletableFuture<Socket> connect(String host, int port) {
+        CompletableFuture<Socket> result = new CompletableFuture<>();
+        pool.execute(() -> {
+            InetAddress[] candidates;
+            try {
+                candidates = InetAddress.getAllByName(host);
+            } catch (UnknownHostException e) {
+                result.completeExceptionally(new IOException("Invalid server address."));
+                return;
+            }
+            AtomicInteger failures = new AtomicInteger();
+            for (InetAddress candidate : candidates) {
+                pool.execute(() -> {
+                    Socket socket = new Socket();
+                    try {
+                        socket.connect(new InetSocketAddress(candidate, port), CONNECT_TIMEOUT);
+                        if (!result.complete(socket)) {
+                            socket.close(); // Another address won the race
+                        }
+                    } catch (IOException e) {
+                        try {
+                            socket.close();
+                        } catch (IOException ignored) {
+                        }
+                        if (failures.incrementAndGet() == candidates.length) {
+                            result.completeExceptionally(new IOException("Unable to establish a connection."));
+                        }
+                    }
+                });
+            }
+        });
+        return result;
+    }
+}
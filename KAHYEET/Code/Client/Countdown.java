@@ -0,0 +1,105 @@
+import java.util.concurrent.TimeUnit;
+import javax.swing.Timer;
+
+/**
+ * Countdown class is a reusable countdown engine driven by the monotonic clock.
+ * The remaining time is always computed from a System.nanoTime() deadline, so a late or skipped
+ * frame never gives the player extra time. A single Swing timer renders frames at a steady rate.
+ */
+public class Countdown {
+    private static final int FRAME_INTERVAL = 33; // About 30 frames per second
+
+    private final Timer frameTimer;
+    private final Listener listener;
+    private long startNanos;
+    private long deadlineNanos;
+    private long stopNanos; // Time the countdown was stopped or expired, 0 while running
+    private boolean running = false;
+
+    /**
+     * Listener notified on the event dispatch thread.
+     */
+    public interface Listener {
+        /**
+         * Called on every frame while the countdown runs.
+         * @param remainingMillis The remaining time in milliseconds.
+         */
+        void onFrame(long remainingMillis);
+
+        /**
+         * Called once when the deadline is reached.
+         */
+        void onExpired();
+    }
+
+    /**
+     * Constructor for Countdown.
+     * @param listener The listener notified of frames and expiry.
+     */
+    public Countdown(Listener listener) {
+        this.listener = listener;
+        this.frameTimer = new Timer(FRAME_INTERVAL, e -> onFrame());
+        this.frameTimer.setCoalesce(true); // Drop frames instead of queueing them when the thread is busy
+    }
+
+    /**
+     * Starts a new countdown, replacing the running one if any.
+     * @param durationMillis The duration in milliseconds.
+     */
+    public void start(long durationMillis) {
+        startNanos = System.nanoTime();
+        deadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        stopNanos = 0;
+        running = true;
+        listener.onFrame(durationMillis);
+        frameTimer.restart();
+    }
+
+    /**
+     * Stops the countdown and freezes the elapsed time.
+     */
+    public void stop() {
+        if (running) {
+            running = false;
+            stopNanos = System.nanoTime();
+            frameTimer.stop();
+        }
+    }
+
+    /**
+     * Gets the time remaining before the deadline.
+     * @return The remaining time in milliseconds, never negative.
+     */
+    public long getRemainingMillis() {
+        long now = running ? System.nanoTime() : stopNanos;
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - now));
+    }
+
+    /**
+     * Gets the time elapsed since the countdown started, up to the moment it was stopped or expired.
+     * @return The elapsed time in milliseconds.
+     */
+    public long getElapsedMillis() {
+        long end = running ? System.nanoTime() : stopNanos;
+        return TimeUnit.NANOSECONDS.toMillis(Math.min(end, deadlineNanos) - startNanos);
+    }
+
+    /**
+     * Renders one frame and fires the expiry when the deadline has passed.
+     */
+    private void onFrame() {
+        if (!running) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - deadlineNanos >= 0) {
+            running = false;
+            stopNanos = deadlineNanos;
+            frameTimer.stop();
+            listener.onFrame(0);
+            listener.onExpired();
+        } else {
+            listener.onFrame(TimeUnit.NANOSECONDS.toMillis(deadlineNanos - now));
+        }
+    }
+}
@@ -2,6 +2,12 @@ import java.awt.*;
 import java.awt.event.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.io.File;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Clip;
+import javax.swing.ImageIcon;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.Timer;
 import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
@@ -19,14 +25,25 @@ public class GameUI extends Frame {
     private JTextArea questionLabel; // Text area for displaying questions
     private int currentQuestionIndex = 0; // Index of the current question
     private List<Button> optionButtons = new ArrayList<>(); // Buttons for answer options
-    private long questionStartTime; // Start time for each question
     private int score = 0; // Player's score
     private int questionTimer; // Time limit for each question in milliseconds
     private int wait2StartTimer = 3000; // Time limit for waiting to start the game
-    private Timer countdownTimer; // Timer for countdown
+    private Countdown countdown; // Single countdown engine reused for every question
     private JProgressBar progressBar; // Progress bar for countdown timer
-    private int remainingTime; // Time left for the current question
-    private boolean isGameStarted = false; // Flag to check if the game has started
+    private long displayedSeconds = -1; // Seconds currently shown in timerLabel
+    private static final int FEEDBACK_DELAY = 2000; // Time the answer feedback stays on screen in milliseconds
+    private Timer transitionTimer; // Single scheduler for phase transitions, runs on the event dispatch thread
+    private Phase phase = Phase.WAITING; // Current phase of the game state machine
+    private static final int PREFETCH_COUNT = 3; // Number of upcoming questions whose media is downloaded ahead
+    private JLabel mediaLabel; // Thumbnail of the image of the current question
+    private Clip mediaClip; // Audio of the current question
+
+    /**
+     * Phases of the game: waiting for the start, answering a question, showing feedback, and finished.
+     */
+    private enum Phase {
+        WAITING, QUESTION, FEEDBACK, FINISHED
+    }
 
     private Sound correctSound;
     private Sound wrongSound;
@@ -82,7 +99,18 @@ public class GameUI extends Frame {
         questionLabel.setLineWrap(true); // Enable line wrap
         questionLabel.setFocusable(false);
         JScrollPane scrollPane = new JScrollPane(questionLabel); // Use JScrollPane to contain JTextArea
-        add(scrollPane, BorderLayout.CENTER);
+        Panel questionPanel = new Panel(new BorderLayout()); // Question text with the media thumbnail beside it
+        questionPanel.add(scrollPane, BorderLayout.CENTER);
+        mediaLabel = new JLabel("", JLabel.CENTER);
+        mediaLabel.setPreferredSize(new Dimension(100, 0));
+        mediaLabel.setVisible(false);
+        mediaLabel.addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent e) {
+                showFullImage();
+            }
+        });
+        questionPanel.add(mediaLabel, BorderLayout.EAST);
+        add(questionPanel);
 
         for (int i = 0; i < 4; i++) {
             Button optionButton = new Button();
@@ -90,11 +118,29 @@ public class GameUI extends Frame {
             add(optionButton);
             int finalI = i;
             optionButton.addActionListener(e -> {
-                stopCountdown(); // Stop countdown on answer
-                sendAnswer(finalI);
+                if (phase == Phase.QUESTION) { // Ignore clicks that arrive after a timeout or during feedback
+                    sendAnswer(finalI);
+                }
             });
         }
 
+        client.getAssetCache().setListener(this::onAssetAvailable);
+
+        transitionTimer = new Timer(FEEDBACK_DELAY, e -> onTransition());
+        transitionTimer.setRepeats(false);
+
+        countdown = new Countdown(new Countdown.Listener() {
+            @Override
+            public void onFrame(long remainingMillis) {
+                renderCountdown(remainingMillis);
+            }
+
+            @Override
+            public void onExpired() {
+                onCountdownExpired();
+            }
+        });
+
         addWindowListener(new WindowAdapter() {
             public void windowClosing(WindowEvent windowEvent) {
                 System.exit(0);
@@ -110,26 +156,131 @@ public class GameUI extends Frame {
      */
     private void displayQuestion() {
         if (currentQuestionIndex >= questions.size()) {
-            if (!client.isFinished()) {
-                client.sendMessageToServer("END");
-                questionLabel.setText("Quiz Completed!");
-                client.setFinished(true);
-                for (Button button : optionButtons) {
-                    button.setEnabled(false);
-                }
-            }
+            completeQuiz();
             return;
         }
+        phase = Phase.QUESTION;
         Question question = questions.get(currentQuestionIndex);
         questionLabel.setText("Question " + (currentQuestionIndex + 1) + ": " + question.getQuestionText());
 
-        List<String> options = question.getOptions();
-        for (int i = 0; i < options.size(); i++) {
-            optionButtons.get(i).setLabel(options.get(i));
+        for (int i = 0; i < question.getOptionCount(); i++) {
+            optionButtons.get(i).setLabel(question.getOption(i));
+        }
+        showMedia(question);
+        prefetchMedia();
+
+        startCountdown(questionTimer); // Start countdown timer, the response time is measured from here
+    }
+
+    /**
+     * Shows the image or plays the audio of a question, requesting it from the server if it is not cached yet.
+     * @param question The question being displayed.
+     */
+    private void showMedia(Question question) {
+        stopMedia();
+        String hash = question.getMediaHash();
+        mediaLabel.setVisible(hash != null);
+        if (hash == null) {
+            return;
+        }
+        AssetCache assetCache = client.getAssetCache();
+        if (!assetCache.isAvailable(hash)) {
+            mediaLabel.setIcon(null);
+            mediaLabel.setText("Loading...");
+            assetCache.request(hash);
+            return;
+        }
+        File file = assetCache.getFile(hash);
+        if ("image".equals(question.getMediaType())) {
+            ImageIcon image = new ImageIcon(file.getPath());
+            int height = Math.max(mediaLabel.getParent().getHeight(), 1); // Fit the question row
+            mediaLabel.setText("");
+            mediaLabel.setIcon(new ImageIcon(image.getImage().getScaledInstance(-1, height, Image.SCALE_SMOOTH)));
+        } else if ("audio".equals(question.getMediaType())) {
+            mediaLabel.setIcon(null);
+            mediaLabel.setText("\u266B Audio");
+            try {
+                mediaClip = AudioSystem.getClip();
+                mediaClip.open(AudioSystem.getAudioInputStream(file));
+                mediaClip.start();
+            } catch (Exception e) {
+                System.out.println("Unable to play audio " + hash + ".");
+            }
         }
+    }
 
-        questionStartTime = System.currentTimeMillis(); // Record the start time
-        startCountdown(questionTimer); // Start countdown timer
+    /**
+     * Downloads the media of the next questions while the current one is displayed.
+     */
+    private void prefetchMedia() {
+        AssetCache assetCache = client.getAssetCache();
+        int end = Math.min(questions.size(), currentQuestionIndex + 1 + PREFETCH_COUNT);
+        for (int i = currentQuestionIndex + 1; i < end; i++) {
+            assetCache.request(questions.get(i).getMediaHash());
+        }
+    }
+
+    /**
+     * Refreshes the media of the current question when its download completes.
+     * @param hash The hash of the asset that became available.
+     */
+    private void onAssetAvailable(String hash) {
+        if (phase == Phase.QUESTION && hash.equals(questions.get(currentQuestionIndex).getMediaHash())) {
+            showMedia(questions.get(currentQuestionIndex));
+        }
+    }
+
+    /**
+     * Opens the image of the current question at full size.
+     */
+    private void showFullImage() {
+        if (phase != Phase.QUESTION && phase != Phase.FEEDBACK) {
+            return;
+        }
+        Question question = questions.get(Math.min(currentQuestionIndex, questions.size() - 1));
+        if ("image".equals(question.getMediaType()) && client.getAssetCache().isAvailable(question.getMediaHash())) {
+            JOptionPane.showMessageDialog(this, new JLabel(new ImageIcon(client.getAssetCache().getFile(question.getMediaHash()).getPath())),
+                    "Question " + (currentQuestionIndex + 1), JOptionPane.PLAIN_MESSAGE);
+        }
+    }
+
+    /**
+     * Stops the audio of the current question.
+     */
+    private void stopMedia() {
+        if (mediaClip != null) {
+            mediaClip.stop();
+            mediaClip.close();
+            mediaClip = null;
+        }
+    }
+
+    /**
+     * Ends the quiz and notifies the server once.
+     */
+    private void completeQuiz() {
+        stopCountdown();
+        stopMedia();
+        mediaLabel.setVisible(false);
+        transitionTimer.stop();
+        phase = Phase.FINISHED;
+        if (!client.isFinished()) {
+            client.sendMessageToServer("END");
+            questionLabel.setText("Quiz Completed!");
+            client.setFinished(true);
+            for (Button button : optionButtons) {
+                button.setEnabled(false);
+            }
+        }
+    }
+
+    /**
+     * Advances the state machine when the transition timer fires.
+     */
+    private void onTransition() {
+        if (phase == Phase.FEEDBACK) {
+            resetAndDisplayNextQuestion();
+        }
     }
 
     /**
@@ -148,45 +299,50 @@ public class GameUI extends Frame {
      * @param timer The time limit for the countdown.
      */
     private void startCountdown(int timer) {
-        remainingTime = timer;
         progressBar.setMaximum(timer);
-        progressBar.setValue(timer);
-
-        countdownTimer = new Timer(100, e -> {
-            remainingTime -= 100; // Decrease time by 100 ms
-            timerLabel.setText("Time: " + (remainingTime / 1000) + "s");
-            progressBar.setValue(remainingTime);
-
-            if (remainingTime <= 0) {
-                stopCountdown();
-                if (!isGameStarted) {
-                    progressBar.setForeground(Color.RED);
-                    isGameStarted = true;
-                    for (Button button : optionButtons) {
-                        button.setEnabled(true);
-                    }
-                    displayQuestion();
-                }
-                else {
-                    sendAnswer(-1); // Send -1 to indicate timeout
-                }
+        countdown.start(timer);
+    }
+
+    /**
+     * Renders one frame of the countdown.
+     * @param remainingMillis The remaining time in milliseconds.
+     */
+    private void renderCountdown(long remainingMillis) {
+        long seconds = remainingMillis / 1000;
+        if (seconds != displayedSeconds) { // Only relayout the label when the shown value changes
+            displayedSeconds = seconds;
+            timerLabel.setText("Time: " + seconds + "s");
+        }
+        progressBar.setValue((int) remainingMillis);
+    }
+
+    /**
+     * Handles the end of the countdown.
+     */
+    private void onCountdownExpired() {
+        if (phase == Phase.WAITING) {
+            progressBar.setForeground(Color.RED);
+            for (Button button : optionButtons) {
+                button.setEnabled(true);
             }
-        });
-        countdownTimer.start();
+            displayQuestion();
+        }
+        else if (phase == Phase.QUESTION) {
+            sendAnswer(-1); // Send -1 to indicate timeout
+        }
     }
 
     /**
      * Stops the countdown timer.
      */
     private void stopCountdown() {
-        if (countdownTimer != null) {
-            countdownTimer.stop();
-        }
+        countdown.stop();
     }
 
     /**
-     * Sends the selected answer to the server and processes the result.
-     * @param answerIndex The index of the selected answer.
+     * Sends the selected answer to the server, shows the feedback and schedules the next question.
+     * Never blocks the event dispatch thread.
+     * @param answerIndex The index of the selected answer, or -1 on timeout.
      */
     private void sendAnswer(int answerIndex) {
         stopCountdown(); // Stop countdown if answer is submitted
@@ -195,14 +351,14 @@ public class GameUI extends Frame {
             button.setEnabled(false);
         }
 
-        long responseTime = System.currentTimeMillis() - questionStartTime; // Calculate response time
+        long responseTime = countdown.getElapsedMillis(); // Exact response time from the monotonic clock
         Question question = questions.get(currentQuestionIndex);
         int tempScore = 0;
+        // The server scores the answer itself by mapping the displayed question and option back to the bank
+        String answerMessage = "ANSWER:" + currentQuestionIndex + ":" + answerIndex + ":" + responseTime;
 
-        if (answerIndex == -2) {}
-        else if (answerIndex != -1 && question.isCorrectAnswer(answerIndex)) {
+        if (answerIndex != -1 && question.isCorrectAnswer(answerIndex)) {
             tempScore = calculatePoints(responseTime, questionTimer);
-            client.sendMessageToServer("ANSWER TRUE QUESTION NUMBER " + (currentQuestionIndex + 1));
             if (client.isDontShowAnswers()) {
                 optionButtons.get(answerIndex).setBackground(Color.BLUE);
                 neutralSound.playOnce();
@@ -212,7 +368,6 @@ public class GameUI extends Frame {
             }
         } else {
             tempScore = 0;
-            client.sendMessageToServer("ANSWER FALSE QUESTION NUMBER " + (currentQuestionIndex + 1));
             if (client.isDontShowAnswers()) {
                 if (answerIndex != -1) optionButtons.get(answerIndex).setBackground(Color.BLUE);
                 neutralSound.playOnce();
@@ -229,14 +384,10 @@ public class GameUI extends Frame {
         }
         score += tempScore;
 
-        client.sendMessageToServer("SCORE:" + score); // Send current score to ClientHandler
+        client.sendMessagesToServer(answerMessage, "SCORE:" + score); // Send answer and current score to ClientHandler in one flush
         currentQuestionIndex++;
-        try {
-            Thread.sleep(2000);
-        } catch (InterruptedException ex) {
-            Thread.currentThread().interrupt();
-        }
-        resetAndDisplayNextQuestion();
+        phase = Phase.FEEDBACK;
+        transitionTimer.restart(); // Shows the next question after the feedback delay
     }
 
     /**
@@ -278,17 +429,19 @@ public class GameUI extends Frame {
     }
 
     /**
-     * Finishes the game.
+     * Finishes the game immediately, whatever phase it is in. Must be called on the event dispatch thread.
      */
     public void finish() {
-        currentQuestionIndex = questions.size() - 1; // Set the current question index to the final question (end of quiz)
-        sendAnswer(-2);
+        completeQuiz();
     }
 
     /**
      * Closes the game UI.
      */
     public void close() {
+        stopCountdown();
+        stopMedia();
+        transitionTimer.stop();
         setVisible(false);
         dispose();
     }
@@ -7,7 +7,8 @@ import java.util.List;
 
 /**
  * LeaderUI class represents the leaderboard user interface for the Kahyeet game.
- * It displays the scores of players in a table, highlighting the current user and disconnected users.
+ * It displays the scores of players in a table, highlighting the current user and disconnected users,
+ * and the ranking of the teams in a second tab when players played in teams.
  */
 public class LeaderUI extends JFrame {
 
@@ -15,8 +16,10 @@ public class LeaderUI extends JFrame {
      * Constructor for LeaderUI.
      * @param currentUsername The username of the current player.
      * @param scoreData The score data as a string.
+     * @param currentTeam The team of the current player, empty if none.
+     * @param teamData The team leaderboard, one TEAM_DATA line per team, empty without teams.
      */
-    public LeaderUI(String currentUsername, String scoreData) {
+    public LeaderUI(String currentUsername, String scoreData, String currentTeam, String teamData) {
         setTitle("Leaderboard");
         setSize(new Dimension(400, 300));
         setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
@@ -82,10 +85,60 @@ public class LeaderUI extends JFrame {
         }
 
         JScrollPane scrollPane = new JScrollPane(table);
-        add(scrollPane);
+        if (teamData.isEmpty()) {
+            add(scrollPane);
+        } else {
+            JTabbedPane tabs = new JTabbedPane();
+            tabs.addTab("Players", scrollPane);
+            tabs.addTab("Teams", new JScrollPane(createTeamTable(currentTeam, teamData)));
+            add(tabs);
+        }
         setVisible(true);
     }
 
+    /**
+     * Creates the table of the teams, already ranked by the server.
+     * @param currentTeam The team of the current player, highlighted.
+     * @param teamData Lines of rank, team, total, members and average, separated by tabs.
+     * @return The table.
+     */
+    private JTable createTeamTable(String currentTeam, String teamData) {
+        String[] columns = {"Rank", "Team", "Average", "Total", "Players"};
+        DefaultTableModel model = new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        for (String line : teamData.split("\n")) {
+            String[] parts = line.split("\t");
+            if (parts.length == 5) {
+                model.addRow(new Object[]{parts[0], parts[1], parts[4], parts[2], parts[3]});
+            }
+        }
+        JTable table = new JTable(model);
+        table.getTableHeader().setReorderingAllowed(false);
+        DefaultTableCellRenderer cellRenderer = new DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
+                JLabel cell = (JLabel) super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+                cell.setHorizontalAlignment(JLabel.CENTER);
+                // Highlight the team of the current player
+                if (table.getValueAt(row, 1).equals(currentTeam)) {
+                    cell.setForeground(Color.BLUE);
+                    cell.setFont(cell.getFont().deriveFont(Font.BOLD));
+                } else {
+                    cell.setForeground(Color.BLACK);
+                }
+                return cell;
+            }
+        };
+        for (int i = 0; i < table.getColumnCount(); i++) {
+            table.getColumnModel().getColumn(i).setCellRenderer(cellRenderer);
+        }
+        return table;
+    }
+
     /**
      * Parses the score data string into a list of ScoreEntry objects.
      * @param scoreData The score data as a string.
@@ -1,9 +1,11 @@
 import javax.swing.*;
 import java.awt.event.*;
+import java.io.IOException;
+import java.util.concurrent.CompletionException;
 
 public class LoginUI extends JFrame {
-    private JTextField usernameField, addressField, portField;
-    private JButton loginButton;
+    private JTextField usernameField, teamField, addressField, portField;
+    private JButton loginButton, spectateButton;
     private Sound errorSound;
 
     /**
@@ -12,7 +14,7 @@ public class LoginUI extends JFrame {
      */
     public LoginUI() {
         setTitle("Kahyeet! Login");
-        setSize(400, 250);
+        setSize(400, 290);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLayout(null);
 
@@ -26,30 +28,43 @@ public class LoginUI extends JFrame {
         usernameField.setBounds(140, 20, 200, 25);
         add(usernameField);
 
+        JLabel teamLabel = new JLabel("Team (optional):");
+        teamLabel.setBounds(20, 60, 110, 25);
+        add(teamLabel);
+
+        teamField = new JTextField();
+        teamField.setBounds(140, 60, 200, 25);
+        add(teamField);
+
         JLabel addressLabel = new JLabel("Server Address:");
-        addressLabel.setBounds(20, 60, 100, 25);
+        addressLabel.setBounds(20, 100, 100, 25);
         add(addressLabel);
 
         addressField = new JTextField("localhost");
-        addressField.setBounds(140, 60, 200, 25);
+        addressField.setBounds(140, 100, 200, 25);
         add(addressField);
 
         JLabel portLabel = new JLabel("Port:");
-        portLabel.setBounds(20, 100, 100, 25);
+        portLabel.setBounds(20, 140, 100, 25);
         add(portLabel);
 
         portField = new JTextField("12345");
-        portField.setBounds(140, 100, 200, 25);
+        portField.setBounds(140, 140, 200, 25);
         add(portField);
 
         loginButton = new JButton("Login");
-        loginButton.setBounds(140, 150, 100, 30);
+        loginButton.setBounds(140, 190, 100, 30);
         add(loginButton);
 
+        spectateButton = new JButton("Spectate");
+        spectateButton.setBounds(250, 190, 90, 30);
+        add(spectateButton);
+
         // Add action listener to the login button
         loginButton.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
                 String username = usernameField.getText().trim();
+                String team = teamField.getText().trim();
                 String address = addressField.getText().trim();
                 int port;
                 
@@ -61,27 +76,78 @@ public class LoginUI extends JFrame {
                 }
 
                 if (!username.isEmpty() && !address.isEmpty()) {
-                    if (connectToClient(username, address, port))
-                        dispose();
+                    connectToClient(username, team, address, port);
                 } else {
                     showMessage("Fields cannot be empty.");
                 }
             }
         });
 
+        // Watch the game without playing, no username needed
+        spectateButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                String address = addressField.getText().trim();
+                int port;
+
+                try {
+                    port = Integer.parseInt(portField.getText().trim());
+                } catch (NumberFormatException ex) {
+                    showMessage("Invalid port number.");
+                    return;
+                }
+
+                if (!address.isEmpty()) {
+                    connectAsSpectator(address, port);
+                } else {
+                    showMessage("Server address cannot be empty.");
+                }
+            }
+        });
+
         setVisible(true);
     }
 
     /**
-     * Connects to the client with the provided username, address, and port.
+     * Connects to the server as a spectator in the background and closes the window once connected.
+     * @param address The server address.
+     * @param port The server port.
+     */
+    private void connectAsSpectator(String address, int port) {
+        loginButton.setEnabled(false);
+        spectateButton.setEnabled(false);
+        Spectator.connect(address, port).whenComplete((spectator, error) -> SwingUtilities.invokeLater(() -> {
+            loginButton.setEnabled(true);
+            spectateButton.setEnabled(true);
+            if (error == null) {
+                dispose();
+            } else {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                showMessage(cause instanceof IOException ? cause.getMessage() : "Unable to establish a connection.");
+            }
+        }));
+    }
+
+    /**
+     * Connects to the client with the provided username, team, address, and port in the background.
+     * The window stays responsive and is closed once the connection succeeds.
      * @param username The username of the player.
+     * @param team The team of the player, empty to play alone.
      * @param address The server address.
      * @param port The server port.
-     * @return True if connected successfully, false otherwise.
      */
-    private boolean connectToClient(String username, String address, int port) {
-        Client client = new Client(this, username, address, port);
-        return client.isConnected();
+    private void connectToClient(String username, String team, String address, int port) {
+        loginButton.setEnabled(false);
+        loginButton.setText("...");
+        Client.connect(this, username, team, address, port).whenComplete((client, error) -> SwingUtilities.invokeLater(() -> {
+            loginButton.setEnabled(true);
+            loginButton.setText("Login");
+            if (error == null) {
+                dispose();
+            } else {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                showMessage(cause instanceof IOException ? cause.getMessage() : "Unable to establish a connection.");
+            }
+        }));
     }
 
     /**
@@ -98,6 +164,7 @@ public class LoginUI extends JFrame {
      * @param args Command line arguments.
      */
     public static void main(String[] args) {
+        SoundCache.preloadAll(); // Decode every sound in the background while the window opens
         new LoginUI();
     }
 }
\ No newline at end of file
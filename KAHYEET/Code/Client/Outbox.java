@@ -0,0 +1,105 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Outbox class is the outbound side of the client connection.
+ * Messages are put in a queue and written by a dedicated writer thread, so the Swing thread never
+ * touches the socket. Each queued batch is written with a single flush, and batches that pile up while the
+ * link is congested are coalesced into one flush as well. Game messages such as ANSWER and END are never
+ * dropped, as the server waits for them; only heartbeat replies are dropped once too many are waiting.
+ */
+public class Outbox implements Runnable {
+    private static final int DROPPABLE_CAPACITY = 256; // Maximum number of droppable batches waiting to be written
+    private static final String DROPPABLE = new String("DROPPABLE"); // Marker ending a droppable batch, compared by identity
+
+    private final Writer writer;
+    private final BlockingQueue<String[]> queue = new LinkedBlockingQueue<>(); // Unbounded, so essential messages always fit
+    private final AtomicInteger droppablePending = new AtomicInteger();
+    private volatile boolean running = true;
+    private Thread thread;
+
+    /**
+     * Constructor for Outbox.
+     * @param writer The buffered writer of the socket.
+     */
+    public Outbox(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Starts the writer thread.
+     */
+    public void start() {
+        thread = new Thread(this, "Client-Writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues essential messages that are written together with a single flush. Never blocks and never drops them.
+     * @param messages The messages to send.
+     * @return True if queued, false if the connection is closed.
+     */
+    public boolean send(String... messages) {
+        if (!running) {
+            return false;
+        }
+        queue.add(messages);
+        return true;
+    }
+
+    /**
+     * Queues a message that may be dropped when the link is congested, such as a heartbeat reply.
+     * @param message The message to send.
+     * @return True if queued, false if too many droppable messages are waiting or the connection is closed.
+     */
+    public boolean sendDroppable(String message) {
+        if (!running) {
+            return false;
+        }
+        if (droppablePending.incrementAndGet() > DROPPABLE_CAPACITY) {
+            droppablePending.decrementAndGet();
+            return false;
+        }
+        queue.add(new String[]{message, DROPPABLE});
+        return true;
+    }
+
+    /**
+     * Stops the writer thread, with the connection. Messages still queued are discarded.
+     */
+    public void close() {
+        running = false;
+        queue.clear();
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                String[] batch = queue.take();
+                do {
+                    for (String message : batch) {
+                        if (message == DROPPABLE) {
+                            droppablePending.decrementAndGet();
+                        } else {
+                            writer.write(message);
+                            writer.write('\n');
+                        }
+                    }
+                } while ((batch = queue.poll()) != null); // Coalesce everything already waiting
+                writer.flush();
+            }
+        } catch (IOException e) {
+            running = false; // The listener thread notices the broken connection
+        } catch (InterruptedException e) {
+            running = false; // Closed
+        }
+    }
+}
@@ -1,24 +1,38 @@
-import java.util.List;
-
 /**
  * Question class represents a single question in the Kahyeet game.
- * It contains the question text, a list of answer options, and the index of the correct answer.
+ * It contains the question text, the answer options in display order, and the index of the correct answer.
  */
 public class Question {
-    private String questionText;
-    private List<String> options;
-    private int correctAnswerIndex;
+    private final String questionText;
+    private final String[] options;
+    private final int correctAnswerIndex;
+    private final String mediaType; // "image" or "audio", null for a text-only question
+    private final String mediaHash; // SHA-256 of the media content, used as the cache key
 
     /**
      * Constructor for Question.
      * @param questionText The text of the question.
-     * @param options The list of answer options.
-     * @param correctAnswerIndex The index of the correct answer in the options list.
+     * @param options The answer options in display order, without the "A. " prefixes.
+     * @param correctAnswerIndex The index of the correct answer in the options array.
      */
-    public Question(String questionText, List<String> options, int correctAnswerIndex) {
+    public Question(String questionText, String[] options, int correctAnswerIndex) {
+        this(questionText, options, correctAnswerIndex, null, null);
+    }
+
+    /**
+     * Constructor for a question with media.
+     * @param questionText The text of the question.
+     * @param options The answer options in display order, without the "A. " prefixes.
+     * @param correctAnswerIndex The index of the correct answer in the options array.
+     * @param mediaType The type of the media, "image" or "audio", or null.
+     * @param mediaHash The hash of the media content, or null.
+     */
+    public Question(String questionText, String[] options, int correctAnswerIndex, String mediaType, String mediaHash) {
         this.questionText = questionText;
         this.options = options;
         this.correctAnswerIndex = correctAnswerIndex;
+        this.mediaType = mediaType;
+        this.mediaHash = mediaHash;
     }
 
     /**
@@ -30,11 +44,20 @@ public class Question {
     }
 
     /**
-     * Gets the list of answer options.
-     * @return The list of options.
+     * Gets the number of answer options.
+     * @return The number of options.
+     */
+    public int getOptionCount() {
+        return options.length;
+    }
+
+    /**
+     * Gets the label of an answer option, prefixed with its letter.
+     * @param index The index of the option.
+     * @return The option label, for example "B. 4".
      */
-    public List<String> getOptions() {
-        return options;
+    public String getOption(int index) {
+        return (char) ('A' + index) + ". " + options[index];
     }
 
     /**
@@ -45,6 +68,14 @@ public class Question {
         return correctAnswerIndex;
     }
 
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getMediaHash() {
+        return mediaHash;
+    }
+
     /**
      * Checks if the provided answer index is correct.
      * @param answerIndex The index of the selected answer.
@@ -53,4 +84,4 @@ public class Question {
     public boolean isCorrectAnswer(int answerIndex) {
         return answerIndex == correctAnswerIndex;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,125 @@
+import java.util.List;
+
+/**
+ * QuestionDecoder class incrementally decodes the question stream sent by the server.
+ * Each QUESTION line is fed as it arrives and a Question is emitted as soon as its block is complete,
+ * so the bank never has to be buffered as text. Only one string is allocated per line.
+ * Malformed blocks (missing options, no or several correct answers) are skipped and counted.
+ */
+public class QuestionDecoder {
+    private static final String CORRECT_MARKER = "_@#";
+    private static final int OPTION_COUNT = 4;
+
+    private final List<Question> questions;
+    private String questionText; // Text of the block being decoded, null between blocks
+    private String mediaType; // Media of the block being decoded, from a [image#hash] or [audio#hash] prefix
+    private String mediaHash;
+    private String[] options = new String[OPTION_COUNT];
+    private int optionCount = 0;
+    private int correctAnswerIndex = -1;
+    private int correctMarkers = 0;
+    private int malformedBlocks = 0;
+
+    /**
+     * Constructor for QuestionDecoder.
+     * @param questions The list decoded questions are appended to.
+     */
+    public QuestionDecoder(List<Question> questions) {
+        this.questions = questions;
+    }
+
+    /**
+     * Feeds one line of the question stream.
+     * @param message The raw message received from the server.
+     * @param offset The index where the question line starts, after the message prefix.
+     */
+    public void feed(String message, int offset) {
+        int start = offset;
+        int end = message.length();
+        while (start < end && message.charAt(start) <= ' ') start++;
+        while (end > start && message.charAt(end - 1) <= ' ') end--;
+
+        if (start == end) {
+            // A blank line ends a block; a block cut short is malformed
+            if (questionText != null) {
+                reject();
+            }
+            return;
+        }
+        if (questionText == null) {
+            int close = message.indexOf(']', start);
+            if (message.charAt(start) == '[' && close > 0 && close < end) {
+                int hash = message.indexOf('#', start);
+                if (hash > start && hash < close) {
+                    mediaType = message.substring(start + 1, hash);
+                    mediaHash = message.substring(hash + 1, close);
+                    start = close + 1;
+                    while (start < end && message.charAt(start) <= ' ') start++;
+                }
+            }
+            questionText = message.substring(start, end);
+            return;
+        }
+
+        if (end - start >= CORRECT_MARKER.length() && message.startsWith(CORRECT_MARKER, end - CORRECT_MARKER.length())) {
+            end -= CORRECT_MARKER.length();
+            correctAnswerIndex = optionCount;
+            correctMarkers++;
+        }
+        options[optionCount++] = message.substring(start, end);
+
+        if (optionCount == OPTION_COUNT) {
+            if (correctMarkers == 1) {
+                emit();
+            } else {
+                reject();
+            }
+        }
+    }
+
+    /**
+     * Ends the stream. An unfinished block is discarded.
+     * @return The number of malformed blocks that were skipped.
+     */
+    public int finish() {
+        if (questionText != null) {
+            reject();
+        }
+        if (malformedBlocks > 0) {
+            System.out.println("Skipped " + malformedBlocks + " malformed question(s).");
+        }
+        return malformedBlocks;
+    }
+
+    /**
+     * Emits the decoded block as a Question. Options arrive already in the order of the player.
+     */
+    private void emit() {
+        questions.add(new Question(questionText, options, correctAnswerIndex, mediaType, mediaHash));
+        options = new String[OPTION_COUNT]; // The emitted question owns the previous array
+        reset();
+    }
+
+    /**
+     * Discards the block being decoded.
+     */
+    private void reject() {
+        malformedBlocks++;
+        for (int i = 0; i < optionCount; i++) {
+            options[i] = null;
+        }
+        reset();
+    }
+
+    /**
+     * Prepares for the next block.
+     */
+    private void reset() {
+        questionText = null;
+        mediaType = null;
+        mediaHash = null;
+        optionCount = 0;
+        correctAnswerIndex = -1;
+        correctMarkers = 0;
+    }
+}
@@ -1,45 +1,33 @@
-import javax.sound.sampled.*;
-import java.io.File;
+import javax.sound.sampled.Clip;
 
 /**
- * Sound class handles the loading and playing of sound files.
+ * Sound class is a lightweight handle to a sound of the shared SoundCache.
+ * Creating one never touches the disk or the audio device.
  */
 public class Sound {
-    private Clip clip;
+    private final SoundCache.Entry entry;
+    private Clip clip; // Clip started last by this handle
 
     /**
-     * Constructor to load a sound file.
+     * Constructor for a sound handle.
      * @param filePath The path to the sound file.
      */
     public Sound(String filePath) {
-        try {
-            AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(new File("sound/" + filePath).getAbsoluteFile());
-            clip = AudioSystem.getClip();
-            clip.open(audioInputStream);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        entry = SoundCache.get(filePath);
     }
 
     /**
      * Plays the sound once.
      */
     public void playOnce() {
-        if (clip != null) {
-            clip.setFramePosition(0); // Reset to the beginning
-            clip.start();
-        }
+        clip = entry.playOnce();
     }
 
     /**
      * Plays the sound in a continuous loop.
      */
     public void playLoop() {
-        if (clip != null) {
-            clip.setFramePosition(0); // Reset to the beginning
-            clip.loop(Clip.LOOP_CONTINUOUSLY); // Loop continuously
-            clip.start();
-        }
+        clip = entry.playLoop();
     }
 
     /**
@@ -50,4 +38,4 @@ public class Sound {
             clip.stop();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,130 @@
+import javax.sound.sampled.*;
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SoundCache class is the process-wide cache of decoded sounds.
+ * Every sound is decoded once and opened into a small pool of clips on a background thread,
+ * so windows never wait for disk I/O or audio line allocation, and the same effect can overlap itself.
+ */
+public class SoundCache {
+    private static final String[] ALL_SOUNDS = {
+        "error_message.wav", "correct_answer.wav", "wrong_answer.wav", "neutral_answer.wav",
+        "show_leaderboard.wav", "background_wait.wav", "background_game.wav"
+    };
+    private static final int POOL_SIZE = 3; // Clips per sound, the number of overlapping one-shot plays
+
+    private static final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private static final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Sound-Loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private SoundCache() {
+    }
+
+    /**
+     * Starts loading every sound of the game in the background.
+     */
+    public static void preloadAll() {
+        long start = System.nanoTime();
+        for (String fileName : ALL_SOUNDS) {
+            get(fileName);
+        }
+        loader.execute(() -> System.out.println("Loaded sounds in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms"));
+    }
+
+    /**
+     * Gets the cache entry of a sound, scheduling its loading in the background if needed. Never blocks.
+     * @param fileName The name of the sound file in the sound directory.
+     * @return The cache entry.
+     */
+    public static Entry get(String fileName) {
+        return entries.computeIfAbsent(fileName, name -> {
+            Entry entry = new Entry();
+            loader.execute(() -> entry.load(name));
+            return entry;
+        });
+    }
+
+    /**
+     * Entry class holds the pool of opened clips of a single sound.
+     */
+    public static class Entry {
+        private volatile Clip[] clips; // Null until loaded, empty if loading failed
+        private int next = 0; // Round-robin position used when every clip is busy
+
+        /**
+         * Decodes the sound file and opens the pool of clips. Runs on the loader thread.
+         * @param fileName The name of the sound file.
+         */
+        private void load(String fileName) {
+            try (AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(new File("sound/" + fileName).getAbsoluteFile())) {
+                AudioFormat format = audioInputStream.getFormat();
+                byte[] data = audioInputStream.readAllBytes(); // Decoded once, shared by every clip
+                Clip[] pool = new Clip[POOL_SIZE];
+                for (int i = 0; i < POOL_SIZE; i++) {
+                    pool[i] = AudioSystem.getClip();
+                    pool[i].open(format, data, 0, data.length);
+                }
+                clips = pool;
+            } catch (Exception e) {
+                System.out.println("Unable to load sound " + fileName + ": " + e.getMessage());
+                clips = new Clip[0];
+            }
+        }
+
+        /**
+         * Gets a clip that is not playing, or the least recently used one if all are busy.
+         * @return The clip, or null if the sound is not loaded.
+         */
+        private synchronized Clip acquire() {
+            Clip[] pool = clips;
+            if (pool == null || pool.length == 0) {
+                return null;
+            }
+            for (int i = 0; i < pool.length; i++) {
+                Clip clip = pool[(next + i) % pool.length];
+                if (!clip.isRunning()) {
+                    next = (next + i + 1) % pool.length;
+                    return clip;
+                }
+            }
+            Clip clip = pool[next];
+            next = (next + 1) % pool.length;
+            clip.stop();
+            return clip;
+        }
+
+        /**
+         * Plays the sound once on a free clip of the pool.
+         * @return The clip that plays the sound, or null if the sound is not loaded yet.
+         */
+        public Clip playOnce() {
+            Clip clip = acquire();
+            if (clip != null) {
+                clip.setFramePosition(0); // Reset to the beginning
+                clip.start();
+            }
+            return clip;
+        }
+
+        /**
+         * Plays the sound in a continuous loop on a free clip of the pool.
+         * @return The clip that plays the sound, or null if the sound is not loaded yet.
+         */
+        public Clip playLoop() {
+            Clip clip = acquire();
+            if (clip != null) {
+                clip.setFramePosition(0); // Reset to the beginning
+                clip.loop(Clip.LOOP_CONTINUOUSLY); // Loop continuously
+            }
+            return clip;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+import java.io.*;
+import java.net.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+
+/**
+ * Spectator class is a read-only connection to the server, for a projector or for people watching remotely.
+ * It joins without a username, is not counted as a player, and only receives the aggregated SPECTATE_ messages
+ * that the server sends at a throttled rate, which are shown in a SpectatorUI.
+ */
+public class Spectator {
+    private static final int HANDSHAKE_TIMEOUT = 5000; // Time to wait for the first view in milliseconds
+
+    private BufferedReader reader;
+    private Outbox outbox; // Only carries the heartbeat replies
+    private SpectatorUI spectatorUI;
+
+    private Spectator() {
+    }
+
+    /**
+     * Connects to the server as a spectator without blocking the calling thread.
+     * @param address The server address.
+     * @param port The server port.
+     * @return A future completed with the connected spectator, or with an IOException whose message can be shown to the user.
+     */
+    public static CompletableFuture<Spectator> connect(String address, int port) {
+        Spectator spectator = new Spectator();
+        return Connector.connect(address, port).thenApply(socket -> {
+            try {
+                spectator.startWatching(socket);
+                return spectator;
+            } catch (IOException e) {
+                if (spectator.outbox != null) {
+                    spectator.outbox.close();
+                }
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                }
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Performs the handshake on a connected socket and starts listening. Runs on a connector thread.
+     * @param socket The connected socket.
+     * @throws IOException If the handshake fails, with a message that can be shown to the user.
+     */
+    private void startWatching(Socket socket) throws IOException {
+        reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        outbox = new Outbox(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream())));
+        outbox.start();
+        outbox.send("SPECTATE");
+        String firstMessage;
+        socket.setSoTimeout(HANDSHAKE_TIMEOUT);
+        try {
+            firstMessage = reader.readLine();
+        } catch (SocketTimeoutException e) {
+            throw new IOException("The server did not answer in time.");
+        }
+        socket.setSoTimeout(0);
+        if (firstMessage == null || !firstMessage.startsWith("SPECTATE_")) {
+            throw new IOException("This server does not accept spectators.");
+        }
+        SwingUtilities.invokeLater(() -> spectatorUI = new SpectatorUI());
+        handleMessage(firstMessage);
+        Thread listenThread = new Thread(this::listen, "Spectator-Listener");
+        listenThread.start();
+    }
+
+    /**
+     * Reads the messages of the server until the connection is lost.
+     */
+    private void listen() {
+        try {
+            String serverMessage;
+            while ((serverMessage = reader.readLine()) != null) {
+                if (serverMessage.equals("PING")) {
+                    outbox.sendDroppable("PONG");
+                } else {
+                    handleMessage(serverMessage);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        outbox.close(); // Ends the writer thread with the connection
+        SwingUtilities.invokeLater(() -> {
+            JOptionPane.showMessageDialog(spectatorUI, "Connection to server lost.");
+            System.exit(0);
+        });
+    }
+
+    /**
+     * Applies a message of the spectator feed to the UI.
+     * @param message The message received from the server.
+     */
+    private void handleMessage(String message) {
+        int separator = message.indexOf(':');
+        if (separator < 0) {
+            return;
+        }
+        String command = message.substring(0, separator);
+        String[] fields = message.substring(separator + 1).split("\t", -1);
+        SwingUtilities.invokeLater(() -> {
+            if (spectatorUI == null) {
+                return;
+            }
+            switch (command) {
+                case "SPECTATE_STATE" -> spectatorUI.updateState(fields);
+                case "SPECTATE_QUESTION" -> spectatorUI.updateQuestion(fields);
+                case "SPECTATE_ANSWERS" -> spectatorUI.updateAnswers(fields);
+                case "SPECTATE_TOP" -> spectatorUI.updateTop(fields);
+                case "SPECTATE_TEAMS" -> spectatorUI.updateTeams(fields);
+                default -> {
+                }
+            }
+        });
+    }
+}
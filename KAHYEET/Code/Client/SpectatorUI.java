@@ -0,0 +1,181 @@
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * SpectatorUI class shows the game to spectators, sized for a projector: the state of the game, the question
+ * being answered with how many players picked each option, the top players and the best teams.
+ * Every method runs on the event dispatch thread.
+ */
+public class SpectatorUI extends JFrame {
+    private static final Color CORRECT_COLOR = new Color(144, 238, 144);
+    private static final int OPTION_COUNT = 4;
+
+    private JLabel stateLabel;
+    private JLabel questionLabel;
+    private JLabel[] optionLabels = new JLabel[OPTION_COUNT];
+    private JProgressBar[] optionBars = new JProgressBar[OPTION_COUNT];
+    private JLabel timeoutLabel;
+    private DefaultListModel<String> topModel;
+    private DefaultListModel<String> teamsModel;
+    private JPanel teamsPanel; // Hidden unless players play in teams
+
+    /**
+     * Constructor for SpectatorUI.
+     */
+    public SpectatorUI() {
+        setTitle("Kahyeet! Spectator");
+        setSize(900, 500);
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setLayout(new BorderLayout());
+
+        stateLabel = new JLabel("Waiting for the game...", SwingConstants.CENTER);
+        stateLabel.setFont(new Font("Arial", Font.BOLD, 20));
+        add(stateLabel, BorderLayout.NORTH);
+
+        JPanel questionPanel = new JPanel(new GridLayout(OPTION_COUNT + 2, 1, 5, 5));
+        questionPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        questionLabel = new JLabel("", SwingConstants.CENTER);
+        questionLabel.setFont(new Font("Arial", Font.BOLD, 22));
+        questionPanel.add(questionLabel);
+        for (int i = 0; i < OPTION_COUNT; i++) {
+            JPanel optionPanel = new JPanel(new BorderLayout(10, 0));
+            optionLabels[i] = new JLabel();
+            optionLabels[i].setFont(new Font("Arial", Font.PLAIN, 18));
+            optionLabels[i].setPreferredSize(new Dimension(250, 30));
+            optionLabels[i].setOpaque(true);
+            optionBars[i] = new JProgressBar();
+            optionBars[i].setStringPainted(true);
+            optionPanel.add(optionLabels[i], BorderLayout.WEST);
+            optionPanel.add(optionBars[i], BorderLayout.CENTER);
+            questionPanel.add(optionPanel);
+        }
+        timeoutLabel = new JLabel("", SwingConstants.CENTER);
+        questionPanel.add(timeoutLabel);
+        add(questionPanel, BorderLayout.CENTER);
+
+        JPanel rankingPanel = new JPanel(new GridLayout(0, 1));
+        rankingPanel.setPreferredSize(new Dimension(260, 0));
+        JPanel topPanel = new JPanel(new BorderLayout());
+        topPanel.setBorder(BorderFactory.createTitledBorder("Top 10"));
+        topModel = new DefaultListModel<>();
+        JList<String> topList = new JList<>(topModel);
+        topList.setFont(new Font("Arial", Font.PLAIN, 18));
+        topList.setFocusable(false);
+        topPanel.add(new JScrollPane(topList), BorderLayout.CENTER);
+        rankingPanel.add(topPanel);
+
+        teamsPanel = new JPanel(new BorderLayout());
+        teamsPanel.setBorder(BorderFactory.createTitledBorder("Teams (average)"));
+        teamsModel = new DefaultListModel<>();
+        JList<String> teamsList = new JList<>(teamsModel);
+        teamsList.setFont(new Font("Arial", Font.PLAIN, 18));
+        teamsList.setFocusable(false);
+        teamsPanel.add(new JScrollPane(teamsList), BorderLayout.CENTER);
+        teamsPanel.setVisible(false);
+        rankingPanel.add(teamsPanel);
+        add(rankingPanel, BorderLayout.EAST);
+
+        setVisible(true);
+    }
+
+    /**
+     * Shows the state of the game.
+     * @param fields The phase, the number of players and the number who finished.
+     */
+    public void updateState(String[] fields) {
+        if (fields.length < 3) {
+            return;
+        }
+        String text = switch (fields[0]) {
+            case "LOBBY" -> fields[1] + " players in the waiting room";
+            case "RUNNING" -> "Game running - " + fields[2] + "/" + fields[1] + " players finished";
+            default -> "Game over - " + fields[1] + " players";
+        };
+        stateLabel.setText(text);
+    }
+
+    /**
+     * Shows the question being answered.
+     * @param fields The question number, 0 if there is none yet, then the text and the options.
+     */
+    public void updateQuestion(String[] fields) {
+        if (fields.length < 2 + OPTION_COUNT) {
+            questionLabel.setText("");
+            for (int i = 0; i < OPTION_COUNT; i++) {
+                optionLabels[i].setText("");
+                optionLabels[i].setBackground(null);
+                optionBars[i].setValue(0);
+                optionBars[i].setString("");
+            }
+            timeoutLabel.setText("");
+            return;
+        }
+        questionLabel.setText("<html><div style='text-align:center;'>" + fields[0] + ". " + escape(fields[1]) + "</div></html>");
+        for (int i = 0; i < OPTION_COUNT; i++) {
+            optionLabels[i].setText(" " + (char) ('A' + i) + ". " + fields[2 + i]);
+        }
+    }
+
+    /**
+     * Shows how many players picked each option of the question.
+     * @param fields The count of each option, the number of timeouts and the correct option, -1 while hidden.
+     */
+    public void updateAnswers(String[] fields) {
+        if (fields.length < OPTION_COUNT + 2) {
+            return;
+        }
+        try {
+            long[] counts = new long[OPTION_COUNT];
+            long total = 0;
+            for (int i = 0; i < OPTION_COUNT; i++) {
+                counts[i] = Long.parseLong(fields[i]);
+                total += counts[i];
+            }
+            int correct = Integer.parseInt(fields[OPTION_COUNT + 1]);
+            for (int i = 0; i < OPTION_COUNT; i++) {
+                optionBars[i].setMaximum((int) Math.max(total, 1));
+                optionBars[i].setValue((int) counts[i]);
+                optionBars[i].setString(String.valueOf(counts[i]));
+                optionLabels[i].setBackground(i == correct ? CORRECT_COLOR : null);
+            }
+            timeoutLabel.setText("No answer: " + fields[OPTION_COUNT]);
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid answers from server.");
+        }
+    }
+
+    /**
+     * Shows the best players.
+     * @param fields Usernames and scores, alternating, best first.
+     */
+    public void updateTop(String[] fields) {
+        topModel.clear();
+        for (int i = 0; i + 1 < fields.length; i += 2) {
+            topModel.addElement((i / 2 + 1) + ". " + fields[i] + " - " + fields[i + 1]);
+        }
+    }
+
+    /**
+     * Shows the best teams.
+     * @param fields Team names and average scores, alternating, best first.
+     */
+    public void updateTeams(String[] fields) {
+        teamsModel.clear();
+        for (int i = 0; i + 1 < fields.length; i += 2) {
+            teamsModel.addElement((i / 2 + 1) + ". " + fields[i] + " - " + fields[i + 1]);
+        }
+        if (teamsPanel.isVisible() == teamsModel.isEmpty()) {
+            teamsPanel.setVisible(!teamsModel.isEmpty());
+            revalidate();
+        }
+    }
+
+    /**
+     * Escapes the text of a question for an HTML label.
+     * @param text The text.
+     * @return The escaped text.
+     */
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
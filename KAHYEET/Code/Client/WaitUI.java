@@ -8,8 +8,7 @@ import java.util.List;
  */
 public class WaitUI extends JFrame {
     private String username;
-    private JTextArea leftWaitingPlayersArea;
-    private JTextArea rightWaitingPlayersArea;
+    private DefaultListModel<String> waitingPlayersModel; // Updated in place as players join and leave
     private Sound backgroundMusic;
 
     /**
@@ -27,21 +26,21 @@ public class WaitUI extends JFrame {
         JLabel waitingLabel = new JLabel("Waiting for other players to join...", SwingConstants.CENTER);
         add(waitingLabel, BorderLayout.NORTH);
 
-        JPanel waitingPlayersPanel = new JPanel(new GridLayout(1, 2));
-
-        leftWaitingPlayersArea = new JTextArea();
-        leftWaitingPlayersArea.setEditable(false);
-        leftWaitingPlayersArea.setFocusable(false);
-        leftWaitingPlayersArea.setLineWrap(true);
-        leftWaitingPlayersArea.setWrapStyleWord(true);
-        waitingPlayersPanel.add(new JScrollPane(leftWaitingPlayersArea));
-
-        rightWaitingPlayersArea = new JTextArea();
-        rightWaitingPlayersArea.setEditable(false);
-        rightWaitingPlayersArea.setFocusable(false);
-        rightWaitingPlayersArea.setLineWrap(true);
-        rightWaitingPlayersArea.setWrapStyleWord(true);
-        waitingPlayersPanel.add(new JScrollPane(rightWaitingPlayersArea));
+        // Players are laid out in rows of two columns
+        waitingPlayersModel = new DefaultListModel<>();
+        JList<String> waitingPlayersList = new JList<>(waitingPlayersModel);
+        waitingPlayersList.setLayoutOrientation(JList.HORIZONTAL_WRAP);
+        waitingPlayersList.setVisibleRowCount(-1);
+        waitingPlayersList.setFixedCellWidth(185);
+        waitingPlayersList.setFocusable(false);
+        waitingPlayersList.setSelectionModel(new DefaultListSelectionModel() {
+            @Override
+            public void setSelectionInterval(int index0, int index1) {
+                // The list is read-only
+            }
+        });
+        JScrollPane waitingPlayersPanel = new JScrollPane(waitingPlayersList);
+        waitingPlayersPanel.setHorizontalScrollBarPolicy(ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
 
         add(waitingPlayersPanel, BorderLayout.CENTER);
 
@@ -53,19 +52,28 @@ public class WaitUI extends JFrame {
     }
 
     /**
-     * Updates the list of waiting players displayed in the UI.
+     * Replaces the list of waiting players displayed in the UI.
      * @param playerUsernames The list of usernames of the waiting players.
      */
     public void updateWaitingPlayers(List<String> playerUsernames) {
-        leftWaitingPlayersArea.setText("");
-        rightWaitingPlayersArea.setText("");
-        for (int i = 0; i < playerUsernames.size(); i++) {
-            if (i % 2 == 0) {
-                leftWaitingPlayersArea.append(playerUsernames.get(i) + "\n");
-            } else {
-                rightWaitingPlayersArea.append(playerUsernames.get(i) + "\n");
-            }
-        }
+        waitingPlayersModel.clear();
+        waitingPlayersModel.addAll(playerUsernames);
+    }
+
+    /**
+     * Adds a player to the list of waiting players.
+     * @param playerUsername The username of the player.
+     */
+    public void addWaitingPlayer(String playerUsername) {
+        waitingPlayersModel.addElement(playerUsername);
+    }
+
+    /**
+     * Removes a player from the list of waiting players.
+     * @param playerUsername The username of the player.
+     */
+    public void removeWaitingPlayer(String playerUsername) {
+        waitingPlayersModel.removeElement(playerUsername);
     }
 
     /**
@@ -0,0 +1,208 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AnswerStats class collects the answers of a game per question: how often each option was picked,
+ * how many answers were correct and how long players took. Answers are recorded from the reading threads
+ * of all clients at once, so every counter is a LongAdder and nothing is locked; the counters of a question
+ * are only allocated when it receives its first answer. Readers see a live, slightly lagging view.
+ */
+public class AnswerStats {
+    public static final int BUCKETS = 10; // Response-time histogram buckets, each a tenth of the timer
+
+    private final GameSession game;
+    private final AtomicReferenceArray<QuestionStats> questions;
+    private volatile int lastQuestion = -1; // Question of the latest answer, shown to spectators
+
+    /**
+     * QuestionStats class holds the counters of one question.
+     */
+    private static class QuestionStats {
+        private final LongAdder[] options = newAdders(TextQuestionBank.OPTION_COUNT + 1); // Last slot counts timeouts
+        private final LongAdder correct = new LongAdder();
+        private final LongAdder totalResponseMillis = new LongAdder();
+        private final LongAdder[] histogram = newAdders(BUCKETS);
+    }
+
+    /**
+     * Constructor for AnswerStats.
+     * @param game The game whose answers are collected.
+     */
+    public AnswerStats(GameSession game) {
+        this.game = game;
+        this.questions = new AtomicReferenceArray<>(game.getQuestionCount());
+    }
+
+    /**
+     * Records one answer.
+     * @param question The index of the question in the game.
+     * @param option The original option picked, or -1 on timeout.
+     * @param correct True if the answer is correct.
+     * @param responseMillis The response time in milliseconds.
+     */
+    public void record(int question, int option, boolean correct, long responseMillis) {
+        QuestionStats stats = questions.get(question);
+        if (stats == null) {
+            questions.compareAndSet(question, null, new QuestionStats());
+            stats = questions.get(question);
+        }
+        stats.options[option < 0 ? TextQuestionBank.OPTION_COUNT : option].increment();
+        lastQuestion = question;
+        if (correct) {
+            stats.correct.increment();
+        }
+        if (option >= 0) {
+            long clamped = Math.min(Math.max(responseMillis, 0), game.getTimerMillis());
+            stats.totalResponseMillis.add(clamped);
+            int bucket = game.getTimerMillis() > 0 ? (int) (clamped * BUCKETS / game.getTimerMillis()) : 0;
+            stats.histogram[Math.min(bucket, BUCKETS - 1)].increment();
+        }
+    }
+
+    public int getQuestionCount() {
+        return questions.length();
+    }
+
+    /**
+     * Gets the question answered last by any player, which is what the game is busy with.
+     * @return The index of the question in the game, or -1 before the first answer.
+     */
+    public int getLastQuestion() {
+        return lastQuestion;
+    }
+
+    /**
+     * Gets the correct option of a question.
+     * @param question The index of the question in the game.
+     * @return The original index of the correct option.
+     */
+    public int getCorrectOption(int question) {
+        return game.getCorrectOption(question);
+    }
+
+    /**
+     * Gets the text of a question.
+     * @param question The index of the question in the game.
+     * @return The text.
+     */
+    public String getQuestionText(int question) {
+        return game.getQuestions().get(question)[0];
+    }
+
+    /**
+     * Gets how many players picked an option.
+     * @param question The index of the question in the game.
+     * @param option The original option, or -1 for timeouts.
+     * @return The count.
+     */
+    public long getOptionCount(int question, int option) {
+        QuestionStats stats = questions.get(question);
+        return stats == null ? 0 : stats.options[option < 0 ? TextQuestionBank.OPTION_COUNT : option].sum();
+    }
+
+    /**
+     * Gets how many answers a question received, timeouts included.
+     * @param question The index of the question in the game.
+     * @return The count.
+     */
+    public long getAnswerCount(int question) {
+        QuestionStats stats = questions.get(question);
+        long total = 0;
+        if (stats != null) {
+            for (LongAdder option : stats.options) {
+                total += option.sum();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Gets how many answers to a question were correct.
+     * @param question The index of the question in the game.
+     * @return The count.
+     */
+    public long getCorrectCount(int question) {
+        QuestionStats stats = questions.get(question);
+        return stats == null ? 0 : stats.correct.sum();
+    }
+
+    /**
+     * Gets the average response time of the answers given before the timeout.
+     * @param question The index of the question in the game.
+     * @return The average in milliseconds, or 0 if nobody answered.
+     */
+    public long getAverageResponseMillis(int question) {
+        QuestionStats stats = questions.get(question);
+        if (stats == null) {
+            return 0;
+        }
+        long answered = getAnswerCount(question) - stats.options[TextQuestionBank.OPTION_COUNT].sum();
+        return answered > 0 ? stats.totalResponseMillis.sum() / answered : 0;
+    }
+
+    /**
+     * Gets the response-time histogram of a question.
+     * @param question The index of the question in the game.
+     * @return The count of each bucket, the first bucket holding the fastest answers.
+     */
+    public long[] getHistogram(int question) {
+        long[] counts = new long[BUCKETS];
+        QuestionStats stats = questions.get(question);
+        if (stats != null) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = stats.histogram[i].sum();
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Writes the statistics of every question to a CSV file.
+     * @param file The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void exportCsv(File file) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            StringBuilder header = new StringBuilder("question,text,correct_option,answers,A,B,C,D,timeouts,correct,average_ms");
+            for (int i = 0; i < BUCKETS; i++) {
+                header.append(",bucket_").append(i);
+            }
+            writer.write(header.append('\n').toString());
+            for (int question = 0; question < getQuestionCount(); question++) {
+                StringBuilder row = new StringBuilder();
+                row.append(question + 1).append(',');
+                row.append('"').append(getQuestionText(question).replace("\"", "\"\"")).append('"').append(',');
+                int correct = game.getCorrectOption(question);
+                row.append(correct >= 0 ? String.valueOf((char) ('A' + correct)) : "").append(',');
+                row.append(getAnswerCount(question));
+                for (int option = 0; option < TextQuestionBank.OPTION_COUNT; option++) {
+                    row.append(',').append(getOptionCount(question, option));
+                }
+                row.append(',').append(getOptionCount(question, -1));
+                row.append(',').append(getCorrectCount(question));
+                row.append(',').append(getAverageResponseMillis(question));
+                for (long count : getHistogram(question)) {
+                    row.append(',').append(count);
+                }
+                writer.write(row.append('\n').toString());
+            }
+        }
+    }
+
+    /**
+     * Creates an array of counters.
+     * @param count The number of counters.
+     * @return The counters.
+     */
+    private static LongAdder[] newAdders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
@@ -0,0 +1,172 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * AssetStore class serves the media files referenced by questions.
+ * A question line may start with [image:file] or [audio:file], where file lives in the assets directory.
+ * Before a question is sent, the file name is replaced by the SHA-256 of its content, for example [image#3fa2...],
+ * so clients can cache assets on disk across sessions. Clients download an asset with ASSET_GET and receive
+ * it in chunked ASSET_DATA lines followed by ASSET_END, sent from a small pool so the game is never held up.
+ */
+public class AssetStore {
+    private static final String ASSET_DIRECTORY = "assets";
+    private static final int CHUNK_SIZE = 6 * 1024; // Raw bytes per ASSET_DATA line, 8 KB once encoded
+    private static final long MAX_PENDING_BYTES = 32 * 1024; // Pause the transfer while the client is this far behind
+
+    private static final Map<String, Asset> assetsByName = new ConcurrentHashMap<>();
+    private static final Map<String, Asset> assetsByHash = new ConcurrentHashMap<>();
+    private static final ExecutorService senders = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "Asset-Sender");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private AssetStore() {
+    }
+
+    /**
+     * Asset class describes one media file and the hash of its content.
+     */
+    private static class Asset {
+        private final File file;
+        private final long lastModified;
+        private final long length;
+        private final String hash;
+
+        private Asset(File file, long lastModified, long length, String hash) {
+            this.file = file;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * Replaces the file name of an asset reference in a question line by the hash of the file.
+     * @param line The question line.
+     * @return The line to send to clients; unchanged if it references no asset or the file is missing.
+     */
+    public static String resolve(String line) {
+        if (!line.startsWith("[")) {
+            return line; // Fast path for plain text
+        }
+        int colon = line.indexOf(':');
+        int close = line.indexOf(']');
+        if (colon < 0 || close < colon) {
+            return line;
+        }
+        String kind = line.substring(1, colon);
+        if (!kind.equals("image") && !kind.equals("audio")) {
+            return line;
+        }
+        Asset asset = lookup(line.substring(colon + 1, close).trim());
+        if (asset == null) {
+            return line.substring(close + 1).trim();
+        }
+        return "[" + kind + "#" + asset.hash + "]" + line.substring(close + 1);
+    }
+
+    /**
+     * Sends an asset to a client in chunks, in the background.
+     * @param client The client that requested the asset.
+     * @param hash The hash of the asset.
+     */
+    public static void send(ClientHandler client, String hash) {
+        Asset asset = assetsByHash.get(hash);
+        if (asset == null) {
+            client.sendMessageToClient("ASSET_MISSING:" + hash);
+            return;
+        }
+        senders.execute(() -> transfer(client, asset));
+    }
+
+    /**
+     * Streams an asset file to a client, pausing while the client is behind. Runs on a sender thread.
+     * @param client The client.
+     * @param asset The asset.
+     */
+    private static void transfer(ClientHandler client, Asset asset) {
+        Outbound outbound = client.getOutbound();
+        Base64.Encoder encoder = Base64.getEncoder();
+        try (InputStream in = new FileInputStream(asset.file)) {
+            byte[] chunk = new byte[CHUNK_SIZE];
+            int read;
+            while ((read = in.readNBytes(chunk, 0, CHUNK_SIZE)) > 0) {
+                while (outbound.getPendingBytes() > MAX_PENDING_BYTES && !outbound.isClosed()) {
+                    Thread.sleep(10);
+                }
+                if (outbound.isClosed()) {
+                    return;
+                }
+                client.queueMessageToClient("ASSET_DATA:" + asset.hash + ":" + encoder.encodeToString(read == CHUNK_SIZE ? chunk : Arrays.copyOf(chunk, read)));
+                client.flush();
+            }
+            client.sendMessageToClient("ASSET_END:" + asset.hash);
+        } catch (IOException e) {
+            System.out.println("Failed to send asset " + asset.file.getName() + ".");
+            client.sendMessageToClient("ASSET_MISSING:" + asset.hash);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the asset of a file, hashing it again only if it changed on disk.
+     * @param name The file name in the assets directory.
+     * @return The asset, or null if the file does not exist.
+     */
+    private static Asset lookup(String name) {
+        File file = new File(ASSET_DIRECTORY, name);
+        if (!file.isFile()) {
+            System.out.println("Asset " + name + " not found.");
+            return null;
+        }
+        Asset asset = assetsByName.get(name);
+        if (asset != null && asset.lastModified == file.lastModified() && asset.length == file.length()) {
+            return asset;
+        }
+        try {
+            asset = new Asset(file, file.lastModified(), file.length(), hash(file));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        assetsByName.put(name, asset);
+        assetsByHash.put(asset.hash, asset);
+        return asset;
+    }
+
+    /**
+     * Computes the SHA-256 of a file.
+     * @param file The file.
+     * @return The hash as lowercase hexadecimal.
+     * @throws IOException If the file cannot be read.
+     */
+    private static String hash(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
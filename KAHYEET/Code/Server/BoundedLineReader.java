@@ -0,0 +1,68 @@
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * BoundedLineReader class reads text lines like BufferedReader.readLine, but never holds more than
+ * a fixed number of characters for a line. Longer lines are skipped up to their end without being stored,
+ * so a client cannot make the server buffer an unbounded line.
+ */
+public class BoundedLineReader {
+    public static final String TOO_LONG = new String("TOO_LONG"); // Returned, by identity, in place of a skipped line
+
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private final char[] line;
+    private int position = 0;
+    private int limit = 0;
+    private boolean skipLineFeed = false; // The previous line ended with '\r'
+
+    /**
+     * Constructor for BoundedLineReader.
+     * @param reader The reader to read from.
+     * @param maxLineLength The maximum number of characters of a line.
+     */
+    public BoundedLineReader(Reader reader, int maxLineLength) {
+        this.reader = reader;
+        this.line = new char[maxLineLength];
+    }
+
+    /**
+     * Reads a line. A line ends with '\n', '\r' or "\r\n".
+     * @return The line without its terminator, TOO_LONG if the line exceeded the maximum length,
+     *         or null at the end of the stream.
+     * @throws IOException If the stream cannot be read.
+     */
+    public String readLine() throws IOException {
+        int length = 0;
+        boolean tooLong = false;
+        while (true) {
+            if (position == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    if (length == 0 && !tooLong) {
+                        return null;
+                    }
+                    return tooLong ? TOO_LONG : new String(line, 0, length); // Last line without terminator
+                }
+            }
+            char c = buffer[position++];
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (c == '\n') {
+                    continue;
+                }
+            }
+            if (c == '\n' || c == '\r') {
+                skipLineFeed = c == '\r';
+                return tooLong ? TOO_LONG : new String(line, 0, length);
+            }
+            if (length < line.length) {
+                line[length++] = c;
+            } else {
+                tooLong = true;
+            }
+        }
+    }
+}
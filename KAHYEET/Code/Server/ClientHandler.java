@@ -2,16 +2,34 @@ import java.io.*;
 import java.net.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * ClientHandler class handles communication with a single client.
- * It processes messages from the client and sends responses back.
+ * It processes messages from the client and sends responses back. Lines are read, limited and parsed on the
+ * thread of the connection; whatever changes the game is submitted to the game actor.
  */
-public class ClientHandler implements Runnable {
+public class ClientHandler implements Runnable, HeartbeatWheel.Task {
+    private static final long PING_AFTER_NANOS = TimeUnit.SECONDS.toNanos(3); // Idle time before the server sends PING
+    private static final long IDLE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10); // Idle time before the connection is reaped
+    private static final int MAX_LINE_LENGTH = Integer.getInteger("kahyeet.maxLineLength", 1024); // Longer lines are skipped
+    private static final double INBOUND_RATE = Double.parseDouble(System.getProperty("kahyeet.inboundRate", "20")); // Messages per second
+    private static final int INBOUND_BURST = Integer.getInteger("kahyeet.inboundBurst", 40);
+    private static final double VIOLATION_RATE = 2; // Tolerated violations per second, sustained
+    private static final int VIOLATION_BURST = 50; // Violations in a row before the client is kicked
+    private static final String TEAM_SEPARATOR = "\tTEAM:"; // Optional suffix of USERNAME naming the team of the player
+
     private Socket socket;
-    private PrintWriter out;
-    private BufferedReader in;
-    private Player player;
+    private volatile Outbound out; // Opened by the connection thread, used by the wheel, the actor and broadcasts
+    private BoundedLineReader in;
+    private final TokenBucket inboundLimit = new TokenBucket(INBOUND_RATE, INBOUND_BURST); // Used by the reading thread only
+    private final TokenBucket violationLimit = new TokenBucket(VIOLATION_RATE, VIOLATION_BURST);
+    private volatile CountingInputStream counted; // Bytes read from the socket, null until the connection is read
+    private volatile Player player; // Set by the game actor when the handshake succeeds
+    private volatile long lastSeenNanos; // Time of the last line received from the client
+    private volatile boolean closed = false;
+    private boolean disconnected = false; // Used by the game actor only
+    private boolean spectator = false; // Read-only connection that receives the spectator feed
 
     /**
      * Constructor for ClientHandler.
@@ -19,66 +37,182 @@ public class ClientHandler implements Runnable {
      */
     public ClientHandler(Socket socket) {
         this.socket = socket;
+        this.lastSeenNanos = ServerClock.nanoTime();
+    }
+
+    /**
+     * Gets the first deadline of this connection on the heartbeat wheel.
+     * @return The deadline in System.nanoTime() units.
+     */
+    public long getFirstDeadline() {
+        return lastSeenNanos + PING_AFTER_NANOS;
     }
 
     @Override
     public void run() {
         try {
-            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            out = new PrintWriter(socket.getOutputStream(), true);
+            socket.setTcpNoDelay(true); // Messages are batched and flushed explicitly, so Nagle would only delay them
+            counted = new CountingInputStream(socket.getInputStream());
+            in = new BoundedLineReader(new InputStreamReader(counted), MAX_LINE_LENGTH);
+            openOutbound();
 
             // Receive initial message to get the username from the client
-            String initialMessage = in.readLine();
-            if (initialMessage != null && initialMessage.startsWith("USERNAME:")) {
-                String username = initialMessage.substring(9);
-                if (Server.isPlayerKicked(username)) {
-                    sendMessageToClient("ERROR: You have been kicked from the server and cannot reconnect.");
-                    closeConnection();
-                    return;
-                }
-                if (Server.isUsernameTaken(username)) {
-                    sendMessageToClient("ERROR: Username already taken.");
-                    closeConnection();
-                    return;
-                } else if (Server.isGameStarted()) {
-                    sendMessageToClient("ERROR: Game already started.");
-                    closeConnection();
-                    return;
-                }
-                player = new Player(username);
-                Server.broadcast(username + " has joined.");
-                Server.addClient(true);
-                Server.updateCompletedClientsCount();
-                try {
-                    Thread.sleep(1000);
-                    Server.updateWaitingPlayers();
-                } catch (InterruptedException e) {
-                    System.err.format("IOException: %s%n", e);
-                }
+            if (!handleHandshake(in.readLine(), ServerClock.nanoTime())) {
+                return;
             }
 
             // Receive subsequent messages from the client
             String message;
             while ((message = in.readLine()) != null) {  // Read messages from client
-                System.out.println(player.getUsername() + ": " + message);
-                // Handle answer message
-                if (message.startsWith("ANSWER:")) {
-                    handleAnswer(message);
-                } else if (message.startsWith("SCORE:")) {
-                    int score = Integer.parseInt(message.split(":")[1]);
-                    player.setScore(score);
-                } else if (message.equals("END")) {
-                    player.markFinished();
-                    player.saveScore();
-                    Server.checkAllPlayersFinished();
+                if (!handleMessage(message, ServerClock.nanoTime())) {
+                    break;
                 }
-                // Add more client messages here
             }
+            disconnectPlayer(); // Client closed the connection
         } catch (IOException e) {
             disconnectPlayer();
         } finally {
             closeConnection();
+            Server.removeClient(this); // Also drops handlers that never completed the handshake
+        }
+    }
+
+    /**
+     * Opens the outbound queue of the connection.
+     * @throws IOException If the output stream of the socket cannot be opened.
+     */
+    void openOutbound() throws IOException {
+        out = new Outbound(socket, socket.getRemoteSocketAddress().toString());
+    }
+
+    /**
+     * Handles the first line of the client, which must carry its username, and adds the player to the lobby.
+     * A SPECTATE line instead makes the connection a spectator.
+     * @param initialMessage The first line, or null if the client closed the connection.
+     * @param now The current value of ServerClock.nanoTime().
+     * @return True if the player joined, false if the connection was refused.
+     */
+    boolean handleHandshake(String initialMessage, long now) {
+        lastSeenNanos = now;
+        if (initialMessage != null && initialMessage != BoundedLineReader.TOO_LONG) {
+            TrafficStats.recordReceived(initialMessage);
+        }
+        if ("SPECTATE".equals(initialMessage)) {
+            spectator = true;
+            Server.addSpectator(this);
+            return true;
+        }
+        if (initialMessage == null || !initialMessage.startsWith("USERNAME:")) {
+            closeConnection(); // Not a Kahyeet client, or a line that was too long
+            return false;
+        }
+        String username = initialMessage.substring(9);
+        String team = null;
+        int teamSeparator = username.indexOf(TEAM_SEPARATOR);
+        if (teamSeparator >= 0) {
+            team = TeamBoard.normalize(username.substring(teamSeparator + TEAM_SEPARATOR.length()));
+            username = username.substring(0, teamSeparator);
+        }
+        String joiningUsername = username;
+        String joiningTeam = team;
+        return Server.getActor().call(() -> join(joiningUsername, joiningTeam));
+    }
+
+    /**
+     * Adds the player to the lobby unless the username is refused. Runs on the game actor.
+     * @param username The username sent by the client.
+     * @param team The team of the player, or null.
+     * @return True if the player joined, false if the connection was refused.
+     */
+    private boolean join(String username, String team) {
+        if (Server.isPlayerKicked(username)) {
+            sendMessageToClient("ERROR: You have been kicked from the server and cannot reconnect.");
+            closeConnection();
+            return false;
+        }
+        if (Server.isUsernameTaken(username)) {
+            sendMessageToClient("ERROR: Username already taken.");
+            closeConnection();
+            return false;
+        } else if (Server.isGameStarted()) {
+            sendMessageToClient("ERROR: Game already started.");
+            closeConnection();
+            return false;
         }
+        player = new Player(username);
+        player.setTeam(team);
+        System.out.println(username + " has joined" + (team != null ? " team " + team : "") + ".");
+        Server.addClient();
+        Server.getTeams().join(player);
+        Server.getRecorder().join(username);
+        sendMessageToClient(Server.getRoster().join(username)); // Later changes arrive as deltas
+        return true;
+    }
+
+    /**
+     * Handles one line received from the client after the handshake.
+     * @param message The line.
+     * @param now The current value of ServerClock.nanoTime().
+     * @return False if the client was kicked and must not be read anymore.
+     */
+    boolean handleMessage(String message, long now) {
+        lastSeenNanos = now;
+        // Over-long lines and messages above the rate are dropped; a client that keeps at it is kicked
+        if (message == BoundedLineReader.TOO_LONG || !inboundLimit.tryAcquire(now)) {
+            (message == BoundedLineReader.TOO_LONG ? ServerMetrics.inboundOverlong : ServerMetrics.inboundDropped).increment();
+            if (!violationLimit.tryAcquire(now)) {
+                kickForAbuse();
+                return false;
+            }
+            return true;
+        }
+        TrafficStats.recordReceived(message);
+        if (message.equals("PONG") || spectator) {
+            return true; // Heartbeat reply, nothing else to do; spectators only answer the heartbeat
+        }
+        System.out.println(player.getUsername() + ": " + message);
+        // Handle answer message
+        if (message.startsWith("ANSWER:")) {
+            handleAnswer(message);
+        } else if (message.startsWith("SCORE:")) {
+            // The score is computed by the server, the one of the client is only checked
+            try {
+                int score = Integer.parseInt(message.substring(6));
+                Server.getActor().submit(() -> checkScore(score)); // After the answer sent just before it
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid score from " + player.getUsername() + ".");
+            }
+        } else if (message.startsWith("ASSET_GET:")) {
+            AssetStore.send(this, message.substring(10));
+        } else if (message.equals("END")) {
+            Server.getActor().submit(this::finish);
+        }
+        // Add more client messages here
+        return true;
+    }
+
+    /**
+     * Compares the score of the client with the one of the server. Runs on the game actor.
+     * @param score The score sent by the client.
+     */
+    private void checkScore(int score) {
+        if (score != player.getScore()) {
+            System.out.println("Score mismatch for " + player.getUsername() + ": client " + score + ", server " + player.getScore());
+        }
+    }
+
+    /**
+     * Marks the player as finished and saves the score. Runs on the game actor.
+     */
+    private void finish() {
+        if (Server.getPhase() != Server.Phase.RUNNING || player.isFinished()) {
+            return; // A late END must not count in the next game
+        }
+        player.markFinished();
+        player.saveScore();
+        Server.getProfiles().record(player.getUsername(), player.getScore());
+        Server.getRecorder().finished(player.getUsername(), player.getScore());
+        Server.markClientCompleted();
     }
 
     /**
@@ -86,30 +220,148 @@ public class ClientHandler implements Runnable {
      * @param message The message to send.
      */
     public void sendMessageToClient(String message) {
-        out.println(message);  // Send message to client
+        out.send(message);  // Send message to client
+        out.flush();
+    }
+
+    /**
+     * Queues a message as part of a batch. It is sent on the next call to flush().
+     * @param message The message to queue.
+     */
+    public void queueMessageToClient(String message) {
+        out.send(message);
+    }
+
+    /**
+     * Queues a message that may be skipped when the client falls behind. It is sent on the next call to flush().
+     * @param message The message to queue.
+     */
+    public void queueNonEssentialMessageToClient(String message) {
+        out.send(message, false);
+    }
+
+    /**
+     * Flushes the messages queued for the client.
+     */
+    public void flush() {
+        out.flush();
+    }
+
+    /**
+     * Gets the outbound queue of this connection.
+     * @return The outbound queue, or null if the connection has not started yet.
+     */
+    public Outbound getOutbound() {
+        return out;
     }
 
     /**
-     * Handles the answer message from the client.
-     * @param messageResult The answer message.
+     * Gets the number of bytes read from the client, including lines that were dropped.
+     * @return The number of bytes.
      */
-    private void handleAnswer(String messageResult) {
-        System.out.println("PLAYER " + player.getUsername() + " " + messageResult);
+    public long getBytesReceived() {
+        CountingInputStream stream = counted;
+        return stream != null ? stream.getCount() : 0;
+    }
+
+    /**
+     * Parses the answer message from the client and submits it to be scored.
+     * @param message The answer message, ANSWER:question:option:responseMillis, where option is -1 on timeout.
+     */
+    private void handleAnswer(String message) {
+        String[] parts = message.split(":");
+        if (parts.length != 4) {
+            System.out.println("Ignored answer from " + player.getUsername() + ".");
+            return;
+        }
+        int displayIndex;
+        int option;
+        long responseMillis;
+        try {
+            displayIndex = Integer.parseInt(parts[1]);
+            option = Integer.parseInt(parts[2]);
+            responseMillis = Long.parseLong(parts[3]);
+        } catch (NumberFormatException e) {
+            System.out.println("Ignored answer from " + player.getUsername() + ".");
+            return;
+        }
+        Server.getActor().submit(() -> scoreAnswer(displayIndex, option, responseMillis));
+    }
+
+    /**
+     * Scores an answer. The displayed question and option are mapped back to the game through the order of the player.
+     * Runs on the game actor.
+     * @param displayIndex The position of the question in the order of the player.
+     * @param option The displayed option picked, or -1 on timeout.
+     * @param responseMillis The response time reported by the client.
+     */
+    private void scoreAnswer(int displayIndex, int option, long responseMillis) {
+        GameSession game = Server.getCurrentGame();
+        PlayerOrder order = player.getOrder();
+        if (game == null || order == null || displayIndex < 0 || displayIndex >= game.getQuestionCount() || option < -1 || option >= TextQuestionBank.OPTION_COUNT
+                || !player.markAnswered(displayIndex)) {
+            System.out.println("Ignored answer from " + player.getUsername() + ".");
+            return;
+        }
+        int question = order.questionAt(displayIndex);
+        int originalOption = option == -1 ? -1 : order.originalOption(question, option);
+        boolean correct = originalOption != -1 && originalOption == game.getCorrectOption(question);
+        game.getStats().record(question, originalOption, correct, responseMillis);
+        int points = correct ? game.calculatePoints(responseMillis) : 0;
+        player.addScore(points);
+        Server.getTeams().addPoints(player, points);
+        Server.getRecorder().answer(player.getUsername(), displayIndex, question, originalOption, correct, responseMillis, points);
+        System.out.println("PLAYER " + player.getUsername() + " ANSWER " + (correct ? "TRUE" : "FALSE") + " QUESTION NUMBER " + (question + 1));
+    }
+
+    /**
+     * Kicks the player for flooding the server, so the player cannot reconnect.
+     */
+    private void kickForAbuse() {
+        ServerMetrics.abuseKicks.increment();
+        if (spectator) {
+            // A spectator has no player to ban, the connection is only closed
+            System.out.println("Kicked spectator " + socket.getRemoteSocketAddress() + " for flooding the server.");
+            sendMessageToClient("KICK");
+            closeConnection();
+            return;
+        }
+        System.out.println("Kicked " + player.getUsername() + " for flooding the server.");
+        String username = player.getUsername();
+        Server.getActor().submit(() -> {
+            Server.addKickedPlayer(username);
+            Server.getRecorder().kick(username);
+        });
+        sendMessageToClient("KICK");
+        closeConnection();
     }
 
     /**
      * Disconnects the player and updates the server state.
      */
     public void disconnectPlayer() {
-        if (player != null) {
-            Server.broadcast(player.getUsername() + " disconnected.");
+        Server.getActor().submit(this::leave);
+    }
+
+    /**
+     * Removes the player from the game, once. Runs on the game actor.
+     */
+    private void leave() {
+        if (player != null && !disconnected) {
+            disconnected = true;
+            System.out.println(player.getUsername() + " disconnected.");
+            Server.getRecorder().disconnect(player.getUsername());
             if (!player.isFinished() && !Server.isPlayerKicked(player.getUsername())) {
                 player.saveScore("disconnected");
+                if (Server.isGameStarted()) {
+                    Server.getProfiles().record(player.getUsername(), player.getScore());
+                }
             }
             Server.removeClient(player.getUsername());
-            Server.addClient(false);
-            Server.updateCompletedClientsCount();
-            Server.updateWaitingPlayers();
+            // A player who leaves during a game keeps counting for the team, unless kicked
+            Server.getTeams().leave(player, Server.isGameStarted() && !Server.isPlayerKicked(player.getUsername()));
+            Server.clientLeft(player.isFinished());
+            Server.getRoster().leave(player.getUsername());
         }
     }
 
@@ -117,15 +369,60 @@ public class ClientHandler implements Runnable {
      * Closes the connection to the client.
      */
     public void closeConnection() {
-        try {
-            in.close();
-            out.close();
-            socket.close();
-        } catch (IOException e) {
-            e.printStackTrace();
+        closed = true;
+        if (out != null) {
+            out.close(); // Closes the socket once queued messages such as ERROR are written
+        } else {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
     }
 
+    /**
+     * Checks the liveness of the connection when its deadline on the heartbeat wheel is reached.
+     * Sends PING to an idle client and closes the socket of a client that stayed silent too long
+     * or whose writes are stalled, which unblocks the reading thread and disconnects the player.
+     * @param now The current value of System.nanoTime().
+     * @return The next deadline, or -1 if the connection is closed.
+     */
+    @Override
+    public long onDeadline(long now) {
+        Outbound outbound = out;
+        if (outbound != null) {
+            if (outbound.isClosed()) {
+                return -1;
+            }
+            if (outbound.isStalled(now)) {
+                outbound.evict("write stalled");
+                return -1;
+            }
+        }
+        if (closed) {
+            // Keep watching until queued messages are written; without an outbound queue there is nothing left
+            return outbound != null ? now + PING_AFTER_NANOS : -1;
+        }
+        long lastSeen = lastSeenNanos;
+        long idle = now - lastSeen;
+        if (idle >= IDLE_TIMEOUT_NANOS) {
+            System.out.println("Connection " + (player != null ? player.getUsername() : socket.getRemoteSocketAddress()) + " timed out.");
+            closed = true;
+            try {
+                socket.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return -1;
+        }
+        if (idle >= PING_AFTER_NANOS && outbound != null) {
+            outbound.send("PING");
+            outbound.flush();
+        }
+        return Math.min(now + PING_AFTER_NANOS, lastSeen + IDLE_TIMEOUT_NANOS);
+    }
+
     /**
      * Gets the player associated with this handler.
      * @return The player.
@@ -135,45 +432,63 @@ public class ClientHandler implements Runnable {
     }
 
     /**
-     * Sends the latest score data to the client.
+     * Reads the score lines of the latest game from scores.txt.
+     * @return The SCORE_DATA messages to send, the same for every client.
      */
-    public void sendLatestScoreDataToClient() {
+    public static List<String> readLatestScoreData() {
+        List<String> latestSection = new ArrayList<>();
         try (BufferedReader reader = new BufferedReader(new FileReader("scores.txt"))) {
-            List<String> latestSection = new ArrayList<>();
             String line;
-            
             while ((line = reader.readLine()) != null) {
                 if (line.startsWith("-------------***---------------")) {
                     latestSection.clear();  // Clear previous lines when a new section starts
                 }
                 latestSection.add(line);  // Add line to latest section
             }
-            
-            // Send the latest section to the client
-            for (String sectionLine : latestSection) {
-                if (!sectionLine.startsWith("-------------------------------") && !sectionLine.startsWith("-------------***---------------")) {
-                    sendMessageToClient("SCORE_DATA:" + sectionLine);  // Send only relevant score lines
-                }
-            }
-            sendMessageToClient("SCORE_DATA_END");  // End marker for score data
         } catch (IOException e) {
             e.printStackTrace();
         }
+        List<String> messages = new ArrayList<>();
+        for (String sectionLine : latestSection) {
+            if (!sectionLine.startsWith("-------------------------------") && !sectionLine.startsWith("-------------***---------------")) {
+                messages.add("SCORE_DATA:" + sectionLine);  // Send only relevant score lines
+            }
+        }
+        return messages;
     }
 
     /**
-     * Sends the questions to the client.
+     * Sends the score data of the latest game to the client.
+     * @param scoreData The messages from readLatestScoreData, read once for all clients.
      */
-    public void sendQuestionsToClient() {
-        try (BufferedReader reader = new BufferedReader(new FileReader("questions.txt"))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                sendMessageToClient("QUESTION:" + line);
+    public void sendScoreDataToClient(List<String> scoreData) {
+        for (String message : scoreData) {
+            queueMessageToClient(message);
+        }
+        sendMessageToClient("SCORE_DATA_END");  // End marker for score data, flushes the whole bundle
+    }
+
+    /**
+     * Sends the questions of the game to the client as a single batch, in the order of the player.
+     * Runs on the game actor.
+     * @param game The game being started.
+     */
+    public void sendQuestionsToClient(GameSession game) {
+        PlayerOrder order = game.orderFor(player.getUsername());
+        player.setOrder(order);
+        Server.getRecorder().questionsSent(player.getUsername());
+        List<String[]> questions = game.getQuestions();
+        for (int displayIndex = 0; displayIndex < questions.size(); displayIndex++) {
+            int index = order.questionAt(displayIndex);
+            String[] question = questions.get(index);
+            queueMessageToClient(game.getTextMessage(index));
+            boolean reorder = question.length == 1 + TextQuestionBank.OPTION_COUNT;
+            for (int option = 0; option < question.length - 1; option++) {
+                queueMessageToClient("QUESTION:" + question[1 + (reorder ? order.originalOption(index, option) : option)]);
             }
-            sendMessageToClient("QUESTION_END");
-        } catch (IOException e) {
-            System.out.println("Failed to load questions.");
-            e.printStackTrace();
+            queueMessageToClient("QUESTION:");
         }
+        queueMessageToClient("QUESTION_END");
+        flush(); // The whole bundle leaves in as few packets as possible
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,53 @@
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CountingInputStream class counts the bytes read from the stream it wraps, for the traffic of a connection.
+ * Lines that are dropped or too long are counted too, as they still crossed the network.
+ */
+public class CountingInputStream extends FilterInputStream {
+    private final AtomicLong count = new AtomicLong(); // Written by the reading thread, read by the metrics
+
+    /**
+     * Constructor for CountingInputStream.
+     * @param in The stream to wrap.
+     */
+    public CountingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b >= 0) {
+            count.incrementAndGet();
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        int read = in.read(bytes, offset, length);
+        if (read > 0) {
+            count.addAndGet(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = in.skip(n);
+        count.addAndGet(skipped);
+        return skipped;
+    }
+
+    /**
+     * Gets the number of bytes read.
+     * @return The number of bytes.
+     */
+    public long getCount() {
+        return count.get();
+    }
+}
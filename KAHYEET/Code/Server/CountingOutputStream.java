@@ -0,0 +1,39 @@
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CountingOutputStream class counts the bytes written to the stream it wraps, for the traffic of a connection.
+ */
+public class CountingOutputStream extends FilterOutputStream {
+    private final AtomicLong count = new AtomicLong(); // Written by one writer thread at a time, read by the metrics
+
+    /**
+     * Constructor for CountingOutputStream.
+     * @param out The stream to wrap.
+     */
+    public CountingOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        count.incrementAndGet();
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        out.write(bytes, offset, length); // Whole arrays, not the byte-by-byte default of FilterOutputStream
+        count.addAndGet(length);
+    }
+
+    /**
+     * Gets the number of bytes written.
+     * @return The number of bytes.
+     */
+    public long getCount() {
+        return count.get();
+    }
+}
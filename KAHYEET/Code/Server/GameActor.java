@@ -0,0 +1,115 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * GameActor class is the event loop that owns the state of the game.
+ * Reading threads, the heartbeat wheel and the admin UI submit commands to a lock-free queue, and a single
+ * thread runs them one at a time, in the order each thread submitted them. The state of the game is only
+ * changed by commands, so it needs no lock, and every transition happens in one well-defined order.
+ * Before start() is called, commands run on the thread that submits them, which lets the replay harness
+ * drive the game deterministically from one thread.
+ */
+public class GameActor implements Runnable {
+    private final ConcurrentLinkedQueue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean(); // Held while a thread runs commands before start()
+    private volatile Thread loop; // Thread of the event loop, null until started
+    private volatile Thread runner; // Thread currently running commands
+    private volatile boolean waiting = false; // The loop is about to park and must be woken up
+
+    /**
+     * Starts the event loop thread. Commands submitted from then on run on it.
+     */
+    public void start() {
+        Thread thread = new Thread(this, "Game-Actor");
+        thread.setDaemon(true);
+        loop = thread;
+        thread.start();
+    }
+
+    /**
+     * Submits a command. Safe to call from any thread; the command runs after those submitted before it.
+     * @param command The command.
+     */
+    public void submit(Runnable command) {
+        commands.add(command);
+        Thread thread = loop;
+        if (thread == null) {
+            drain();
+        } else if (waiting) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Runs a command and waits for its result, for the few callers that cannot go on without it.
+     * Never call it from the event dispatch thread: it waits behind every queued command, so the UI would freeze
+     * in a busy game. The UI submits instead and posts its update back with SwingUtilities.invokeLater.
+     * @param command The command.
+     * @param <T> The type of the result.
+     * @return The result of the command.
+     */
+    public <T> T call(Supplier<T> command) {
+        if (Thread.currentThread() == runner) {
+            return command.get(); // Already running a command, waiting for the queue would never end
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        submit(() -> {
+            try {
+                result.complete(command.get());
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result.join();
+    }
+
+    @Override
+    public void run() {
+        runner = Thread.currentThread();
+        while (true) {
+            Runnable command = commands.poll();
+            if (command != null) {
+                execute(command);
+                continue;
+            }
+            waiting = true;
+            if (commands.isEmpty()) { // Checked after waiting is set, so a submit in between always unparks
+                LockSupport.park(this);
+            }
+            waiting = false;
+        }
+    }
+
+    /**
+     * Runs the queued commands on the calling thread, before the loop is started.
+     */
+    private void drain() {
+        while (!commands.isEmpty() && draining.compareAndSet(false, true)) {
+            runner = Thread.currentThread();
+            try {
+                Runnable command;
+                while ((command = commands.poll()) != null) {
+                    execute(command);
+                }
+            } finally {
+                runner = null;
+                draining.set(false);
+            }
+        }
+    }
+
+    /**
+     * Runs one command, so a failing command does not stop the loop.
+     * @param command The command.
+     */
+    private void execute(Runnable command) {
+        try {
+            command.run();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+}
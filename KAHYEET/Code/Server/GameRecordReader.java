@@ -0,0 +1,226 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GameRecordReader class reads a game log written by GameRecorder, and prints it as text, one event per line.
+ * Usage: java GameRecordReader games/game_20240101_120000.kgr
+ */
+public class GameRecordReader {
+    /**
+     * Event class is one decoded record of a game log.
+     * For START, values holds the seed, the timer, the flags, the question count and the correct option of
+     * each question (-1 if unknown), and texts the text of each question. For ANSWER, values holds the displayed
+     * question, the question, the option (-1 on timeout), 1 if correct, the response time and the points.
+     * For FINISHED, values holds the score.
+     */
+    public static class Event {
+        public final int type;
+        public final long timeMillis; // Since the first record
+        public final String username; // Null for events without a player
+        public final long[] values;
+        public final String[] texts;
+
+        Event(int type, long timeMillis, String username, long[] values, String[] texts) {
+            this.type = type;
+            this.timeMillis = timeMillis;
+            this.username = username;
+            this.values = values;
+            this.texts = texts;
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: java GameRecordReader <file.kgr>");
+            return;
+        }
+        try {
+            print(new File(args[0]));
+        } catch (IOException e) {
+            System.out.println("Failed to read " + args[0] + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads every event of a game log. A log cut short, for example by a crash, is read up to the last full record.
+     * @param file The log.
+     * @return The events in order.
+     * @throws IOException If the file cannot be read or is not a game log.
+     */
+    public static List<Event> read(File file) throws IOException {
+        List<Event> events = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != GameRecorder.MAGIC || in.readUnsignedByte() != GameRecorder.VERSION) {
+                throw new IOException("Not a game log.");
+            }
+            in.readLong(); // Start time, see readStartMillis
+            Map<Long, String> players = new HashMap<>();
+            long elapsed = 0;
+            int type;
+            while ((type = in.read()) >= 0) {
+                try {
+                    elapsed += readVarint(in);
+                    switch (type) {
+                        case GameRecorder.JOIN: {
+                            long id = readVarint(in);
+                            String username = readString(in);
+                            players.put(id, username);
+                            events.add(new Event(type, elapsed, username, new long[0], null));
+                            break;
+                        }
+                        case GameRecorder.START: {
+                            long zigzag = readVarint(in);
+                            long seed = (zigzag >>> 1) ^ -(zigzag & 1);
+                            long timer = readVarint(in);
+                            long flags = readVarint(in);
+                            int count = (int) readVarint(in);
+                            long[] values = new long[4 + count];
+                            String[] texts = new String[count];
+                            values[0] = seed;
+                            values[1] = timer;
+                            values[2] = flags;
+                            values[3] = count;
+                            for (int i = 0; i < count; i++) {
+                                texts[i] = readString(in);
+                                values[4 + i] = readVarint(in) - 1;
+                            }
+                            events.add(new Event(type, elapsed, null, values, texts));
+                            break;
+                        }
+                        case GameRecorder.ANSWER: {
+                            String username = players.get(readVarint(in));
+                            long[] values = new long[6];
+                            for (int i = 0; i < values.length; i++) {
+                                values[i] = readVarint(in);
+                            }
+                            values[2]--; // Options are written shifted by one so a timeout fits a varint
+                            events.add(new Event(type, elapsed, username, values, null));
+                            break;
+                        }
+                        case GameRecorder.FINISHED: {
+                            String username = players.get(readVarint(in));
+                            events.add(new Event(type, elapsed, username, new long[]{readVarint(in)}, null));
+                            break;
+                        }
+                        case GameRecorder.QUESTIONS_SENT:
+                        case GameRecorder.KICK:
+                        case GameRecorder.DISCONNECT:
+                            events.add(new Event(type, elapsed, players.get(readVarint(in)), new long[0], null));
+                            break;
+                        case GameRecorder.FINISH_ALL:
+                        case GameRecorder.LEADERBOARD:
+                            events.add(new Event(type, elapsed, null, new long[0], null));
+                            break;
+                        default:
+                            throw new IOException("Unknown event type " + type + ".");
+                    }
+                } catch (EOFException e) {
+                    break; // Truncated tail
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Reads the time a game log was started.
+     * @param file The log.
+     * @return The start time in epoch milliseconds.
+     * @throws IOException If the file cannot be read or is not a game log.
+     */
+    public static long readStartMillis(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readInt() != GameRecorder.MAGIC || in.readUnsignedByte() != GameRecorder.VERSION) {
+                throw new IOException("Not a game log.");
+            }
+            return in.readLong();
+        }
+    }
+
+    /**
+     * Prints every event of a game log.
+     * @param file The log.
+     * @throws IOException If the file cannot be read or is not a game log.
+     */
+    public static void print(File file) throws IOException {
+        System.out.println("Game recorded at " + Instant.ofEpochMilli(readStartMillis(file)));
+        for (Event event : read(file)) {
+            String time = String.format("%8.3f s  ", event.timeMillis / 1000.0);
+            long[] v = event.values;
+            switch (event.type) {
+                case GameRecorder.JOIN:
+                    System.out.println(time + "JOIN " + event.username);
+                    break;
+                case GameRecorder.START:
+                    System.out.println(time + "START seed " + v[0] + ", timer " + v[1] + " ms, flags " + v[2] + ", " + v[3] + " questions");
+                    for (int i = 0; i < event.texts.length; i++) {
+                        System.out.println("            Q" + (i + 1) + " [" + (v[4 + i] >= 0 ? (char) ('A' + v[4 + i]) : '?') + "] " + event.texts[i]);
+                    }
+                    break;
+                case GameRecorder.QUESTIONS_SENT:
+                    System.out.println(time + "QUESTIONS_SENT " + event.username);
+                    break;
+                case GameRecorder.ANSWER:
+                    System.out.println(time + "ANSWER " + event.username + " #" + (v[0] + 1) + " Q" + (v[1] + 1) + " "
+                            + (v[2] >= 0 ? String.valueOf((char) ('A' + v[2])) : "timeout") + (v[3] == 1 ? " correct" : " wrong")
+                            + " in " + v[4] + " ms, +" + v[5]);
+                    break;
+                case GameRecorder.FINISHED:
+                    System.out.println(time + "FINISHED " + event.username + " with " + v[0]);
+                    break;
+                case GameRecorder.KICK:
+                    System.out.println(time + "KICK " + event.username);
+                    break;
+                case GameRecorder.DISCONNECT:
+                    System.out.println(time + "DISCONNECT " + event.username);
+                    break;
+                case GameRecorder.FINISH_ALL:
+                    System.out.println(time + "FINISH_ALL");
+                    break;
+                case GameRecorder.LEADERBOARD:
+                    System.out.println(time + "LEADERBOARD");
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Reads an unsigned variable-length integer.
+     * @param in The stream.
+     * @return The value.
+     * @throws IOException If the stream ends or cannot be read.
+     */
+    private static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint.");
+    }
+
+    /**
+     * Reads a string written as its UTF-8 length and bytes.
+     * @param in The stream.
+     * @return The string.
+     * @throws IOException If the stream ends or cannot be read.
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readVarint(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,369 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GameRecorder class writes every significant event of a game to a compact binary log in the games directory.
+ * Events are encoded with variable-length integers into an in-memory buffer under a short lock, and a background
+ * thread appends the buffer to the file once per second, so recording never waits on the disk.
+ * Players are written once with an id when they join and referred to by that id afterwards.
+ * The format is read back by GameRecordReader.
+ *
+ * File layout: MAGIC (4 bytes), VERSION (1 byte), start time in epoch milliseconds (8 bytes), then records.
+ * Each record is a type byte, the milliseconds since the previous record as a varint, and the fields of the type.
+ */
+public class GameRecorder {
+    public static final int MAGIC = 0x4B475231; // "KGR1"
+    public static final int VERSION = 1;
+    public static final String DIRECTORY = "games";
+
+    public static final int JOIN = 1; // id, username
+    public static final int START = 2; // seed, timer, flags, question count, then text and correct option of each question
+    public static final int QUESTIONS_SENT = 3; // id
+    public static final int ANSWER = 4; // id, displayed question, question, option + 1, correct, response time, points
+    public static final int FINISHED = 5; // id, score
+    public static final int KICK = 6; // id
+    public static final int DISCONNECT = 7; // id
+    public static final int FINISH_ALL = 8;
+    public static final int LEADERBOARD = 9;
+
+    public static final int FLAG_SHUFFLE_QUESTIONS = 1;
+    public static final int FLAG_SHUFFLE_ANSWERS = 2;
+    public static final int FLAG_DONT_SHOW_TRUE_ANSWERS = 4;
+    public static final int FLAG_NO_BONUS_POINT = 8;
+
+    private static final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Game-Recorder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final File file;
+    private final OutputStream out; // Null if the log could not be created, events are then discarded
+    private final Map<String, Integer> playerIds = new ConcurrentHashMap<>();
+    private int nextPlayerId = 0; // Guarded by this
+    private byte[] buffer = new byte[16 * 1024]; // Guarded by this
+    private int length = 0;
+    private byte[] spare = new byte[16 * 1024]; // Swapped with buffer when flushing, so the lock is not held during writes
+    private long lastRecordNanos = ServerClock.nanoTime();
+    private boolean closed = false;
+    private ScheduledFuture<?> flushTask;
+
+    /**
+     * Constructor for GameRecorder.
+     * @param file The file to write.
+     * @param out The stream of the file, or null to discard events.
+     */
+    private GameRecorder(File file, OutputStream out) {
+        this.file = file;
+        this.out = out;
+    }
+
+    /**
+     * Creates a new log named after the current time in the games directory.
+     * @return The recorder; it discards events if the file cannot be created.
+     */
+    public static GameRecorder create() {
+        File directory = new File(DIRECTORY);
+        directory.mkdirs();
+        File file = new File(directory, "game_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".kgr");
+        GameRecorder recorder;
+        try {
+            recorder = new GameRecorder(file, new FileOutputStream(file));
+        } catch (IOException e) {
+            System.out.println("Unable to record the game to " + file + ".");
+            return new GameRecorder(file, null);
+        }
+        synchronized (recorder) {
+            recorder.writeFixed(MAGIC, 4);
+            recorder.buffer[recorder.length++] = VERSION;
+            recorder.writeFixed(System.currentTimeMillis(), 8);
+        }
+        recorder.flushTask = flusher.scheduleWithFixedDelay(recorder::flush, 1, 1, TimeUnit.SECONDS);
+        return recorder;
+    }
+
+    /**
+     * Creates a recorder that discards every event.
+     * @return The recorder.
+     */
+    public static GameRecorder discarding() {
+        return new GameRecorder(null, null);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Records a player joining the lobby.
+     * @param username The username of the player.
+     */
+    public void join(String username) {
+        synchronized (this) {
+            Integer id = playerIds.get(username); // A player who rejoins under the same name keeps the id
+            if (id == null) {
+                id = nextPlayerId++;
+                playerIds.put(username, id);
+            }
+            if (!begin(JOIN)) {
+                return;
+            }
+            writeVarint(id);
+            writeString(username);
+        }
+    }
+
+    /**
+     * Records the start of the game with its settings and questions.
+     * @param game The game being started.
+     * @param flags The FLAG_ constants of the settings, combined.
+     */
+    public void start(GameSession game, int flags) {
+        synchronized (this) {
+            if (!begin(START)) {
+                return;
+            }
+            writeVarint((game.getSeed() << 1) ^ (game.getSeed() >> 63)); // Zigzag, so negative seeds stay short
+            writeVarint(game.getTimerMillis());
+            writeVarint(flags);
+            List<String[]> questions = game.getQuestions();
+            writeVarint(questions.size());
+            for (int i = 0; i < questions.size(); i++) {
+                writeString(questions.get(i)[0]);
+                writeVarint(game.getCorrectOption(i) + 1);
+            }
+        }
+    }
+
+    /**
+     * Records the questions being sent to a player.
+     * @param username The username of the player.
+     */
+    public void questionsSent(String username) {
+        recordPlayerEvent(QUESTIONS_SENT, username);
+    }
+
+    /**
+     * Records a scored answer.
+     * @param username The username of the player.
+     * @param displayIndex The position of the question in the order of the player.
+     * @param question The index of the question in the game.
+     * @param option The original option picked, or -1 on timeout.
+     * @param correct True if the answer is correct.
+     * @param responseMillis The response time reported by the client.
+     * @param points The points given.
+     */
+    public void answer(String username, int displayIndex, int question, int option, boolean correct, long responseMillis, int points) {
+        Integer id = playerIds.get(username);
+        if (id == null) {
+            return;
+        }
+        synchronized (this) {
+            if (!begin(ANSWER)) {
+                return;
+            }
+            writeVarint(id);
+            writeVarint(displayIndex);
+            writeVarint(question);
+            writeVarint(option + 1);
+            writeVarint(correct ? 1 : 0);
+            writeVarint(Math.max(responseMillis, 0));
+            writeVarint(points);
+        }
+    }
+
+    /**
+     * Records a player finishing all the questions.
+     * @param username The username of the player.
+     * @param score The final score of the player.
+     */
+    public void finished(String username, int score) {
+        Integer id = playerIds.get(username);
+        if (id == null) {
+            return;
+        }
+        synchronized (this) {
+            if (!begin(FINISHED)) {
+                return;
+            }
+            writeVarint(id);
+            writeVarint(score);
+        }
+    }
+
+    /**
+     * Records a player being kicked.
+     * @param username The username of the player.
+     */
+    public void kick(String username) {
+        recordPlayerEvent(KICK, username);
+    }
+
+    /**
+     * Records a player disconnecting.
+     * @param username The username of the player.
+     */
+    public void disconnect(String username) {
+        recordPlayerEvent(DISCONNECT, username);
+    }
+
+    /**
+     * Records the game being finished for all players by the server.
+     */
+    public synchronized void finishAll() {
+        begin(FINISH_ALL);
+    }
+
+    /**
+     * Records the leaderboard being shown, which ends the game.
+     */
+    public synchronized void leaderboard() {
+        begin(LEADERBOARD);
+    }
+
+    /**
+     * Writes the remaining events and closes the log. Later events are discarded.
+     */
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        if (out == null) {
+            return;
+        }
+        flushTask.cancel(false);
+        flusher.execute(() -> {
+            flush();
+            try {
+                out.close();
+                System.out.println("Game recorded to " + file + ".");
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Appends the buffered events to the file. Runs on the flusher thread.
+     */
+    private void flush() {
+        byte[] data;
+        int count;
+        synchronized (this) {
+            if (length == 0 || out == null) {
+                return;
+            }
+            data = buffer;
+            count = length;
+            buffer = spare;
+            length = 0;
+        }
+        try {
+            out.write(data, 0, count);
+            out.flush();
+        } catch (IOException e) {
+            System.out.println("Failed to write to " + file + ".");
+        }
+        synchronized (this) {
+            spare = data; // Always the written array: the other one is the buffer now, even after it grew
+        }
+    }
+
+    /**
+     * Records an event that only carries a player.
+     * @param type The type of the event.
+     * @param username The username of the player.
+     */
+    private void recordPlayerEvent(int type, String username) {
+        Integer id = playerIds.get(username);
+        if (id == null) {
+            return;
+        }
+        synchronized (this) {
+            if (!begin(type)) {
+                return;
+            }
+            writeVarint(id);
+        }
+    }
+
+    /**
+     * Starts a record. Must be called while holding the lock.
+     * @param type The type of the record.
+     * @return False if the event must be discarded, because the log is closed or could not be created.
+     */
+    private boolean begin(int type) {
+        if (closed || out == null) {
+            return false;
+        }
+        long now = ServerClock.nanoTime();
+        ensureCapacity(1);
+        buffer[length++] = (byte) type;
+        writeVarint(Math.max(TimeUnit.NANOSECONDS.toMillis(now - lastRecordNanos), 0)); // The clock may be replaced by a replay
+        lastRecordNanos = now;
+        return true;
+    }
+
+    /**
+     * Writes an unsigned variable-length integer, 7 bits per byte.
+     * @param value The value.
+     */
+    private void writeVarint(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+    }
+
+    /**
+     * Writes a string as its UTF-8 length and bytes.
+     * @param value The string.
+     */
+    private void writeString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    /**
+     * Writes a big-endian fixed-width integer.
+     * @param value The value.
+     * @param bytes The number of bytes.
+     */
+    private void writeFixed(long value, int bytes) {
+        ensureCapacity(bytes);
+        for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8) {
+            buffer[length++] = (byte) (value >>> shift);
+        }
+    }
+
+    /**
+     * Grows the buffer if needed.
+     * @param extra The number of bytes about to be written.
+     */
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+import java.util.List;
+
+/**
+ * GameSession class holds the settings and the questions of the game being played.
+ * It gives each player a seeded order and scores answers on the server, so the server no longer
+ * relies on clients for shuffling or scoring.
+ */
+public class GameSession {
+    private final List<String[]> questions;
+    private final byte[] correctOptions; // Index of the correct option of each question, -1 if unknown
+    private final String[] textMessages; // QUESTION message of the text of each question, with its asset resolved once
+    private final long seed;
+    private final int timerMillis;
+    private final boolean shuffleQuestions;
+    private final boolean shuffleAnswers;
+    private final boolean noBonusPoint;
+    private final AnswerStats stats;
+
+    /**
+     * Constructor for GameSession.
+     * @param questions The questions of the game, each as its lines in the questions.txt format.
+     * @param seed The seed of the game, from which every player order is derived.
+     * @param timerMillis The time to answer each question in milliseconds.
+     * @param shuffleQuestions True to shuffle the questions for each player.
+     * @param shuffleAnswers True to shuffle the options for each player.
+     * @param noBonusPoint True to give the same points to every correct answer.
+     */
+    public GameSession(List<String[]> questions, long seed, int timerMillis, boolean shuffleQuestions, boolean shuffleAnswers, boolean noBonusPoint) {
+        this.questions = questions;
+        this.seed = seed;
+        this.timerMillis = timerMillis;
+        this.shuffleQuestions = shuffleQuestions;
+        this.shuffleAnswers = shuffleAnswers;
+        this.noBonusPoint = noBonusPoint;
+        this.correctOptions = new byte[questions.size()];
+        this.textMessages = new String[questions.size()];
+        for (int i = 0; i < questions.size(); i++) {
+            String[] question = questions.get(i);
+            textMessages[i] = "QUESTION:" + AssetStore.resolve(question[0]); // Checks the file, so once per game, not per player
+            correctOptions[i] = -1;
+            for (int option = 1; option < question.length; option++) {
+                if (question[option].endsWith(TextQuestionBank.CORRECT_MARKER)) {
+                    correctOptions[i] = (byte) (option - 1);
+                }
+            }
+        }
+        this.stats = new AnswerStats(this);
+    }
+
+    /**
+     * Creates the order of a player.
+     * @param username The username of the player.
+     * @return The order of the player.
+     */
+    public PlayerOrder orderFor(String username) {
+        return new PlayerOrder(PlayerOrder.playerSeed(seed, username), questions.size(), shuffleQuestions, shuffleAnswers);
+    }
+
+    public List<String[]> getQuestions() {
+        return questions;
+    }
+
+    public int getQuestionCount() {
+        return questions.size();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getTimerMillis() {
+        return timerMillis;
+    }
+
+    public boolean isShuffleQuestions() {
+        return shuffleQuestions;
+    }
+
+    public boolean isShuffleAnswers() {
+        return shuffleAnswers;
+    }
+
+    public boolean isNoBonusPoint() {
+        return noBonusPoint;
+    }
+
+    public AnswerStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Gets the message carrying the text of a question, with its asset reference replaced by the hash.
+     * @param question The index of the question in the game.
+     * @return The QUESTION message of the text.
+     */
+    public String getTextMessage(int question) {
+        return textMessages[question];
+    }
+
+    /**
+     * Gets the correct option of a question.
+     * @param question The index of the question in the game.
+     * @return The index of the correct option.
+     */
+    public int getCorrectOption(int question) {
+        return correctOptions[question];
+    }
+
+    /**
+     * Calculates the points of a correct answer, with the same formula the client displays.
+     * @param responseMillis The response time in milliseconds.
+     * @return The points.
+     */
+    public int calculatePoints(long responseMillis) {
+        if (noBonusPoint || timerMillis <= 0) {
+            return 1000;
+        }
+        double ratio = Math.min(Math.max(responseMillis, 0), timerMillis) / (double) timerMillis;
+        return (int) Math.round(Math.max(1000 * (1 - ratio / 2), 0));
+    }
+}
@@ -0,0 +1,148 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * HeartbeatWheel class is a hashed timer wheel that tracks the deadlines of all connections.
+ * A single thread advances the wheel, so no thread or timer object is created per client.
+ */
+public class HeartbeatWheel implements Runnable {
+    private final long tickNanos;
+    private final int mask;
+    private final List<Entry>[] slots;
+    private final List<Entry> due = new ArrayList<>(); // Reused buffer for entries that expire in a tick
+    private final ConcurrentLinkedQueue<Entry> pending = new ConcurrentLinkedQueue<>(); // Registrations from other threads
+    private long currentTick;
+    private volatile boolean running = true;
+
+    /**
+     * Task scheduled on the wheel.
+     */
+    public interface Task {
+        /**
+         * Called on the wheel thread when the deadline of the task is reached.
+         * @param now The current value of System.nanoTime().
+         * @return The next deadline in System.nanoTime() units, or -1 to remove the task from the wheel.
+         */
+        long onDeadline(long now);
+    }
+
+    /**
+     * Entry keeps a task together with the tick it expires in, so it can be re-armed without allocation.
+     */
+    private static class Entry {
+        private final Task task;
+        private long deadlineTick;
+
+        private Entry(Task task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    /**
+     * Constructor for HeartbeatWheel.
+     * @param tickMillis The resolution of the wheel in milliseconds.
+     * @param slotCount The number of slots, rounded up to a power of two.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public HeartbeatWheel(long tickMillis, int slotCount) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        int size = Integer.highestOneBit(Math.max(2, slotCount - 1)) << 1;
+        this.mask = size - 1;
+        this.slots = new List[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new ArrayList<>();
+        }
+        this.currentTick = System.nanoTime() / tickNanos;
+    }
+
+    /**
+     * Starts the wheel thread.
+     */
+    public void start() {
+        Thread thread = new Thread(this, "Heartbeat-Wheel");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the wheel thread.
+     */
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * Schedules a task on the wheel. Safe to call from any thread.
+     * @param task The task to schedule.
+     * @param deadlineNanos The first deadline in System.nanoTime() units.
+     */
+    public void schedule(Task task, long deadlineNanos) {
+        pending.add(new Entry(task, deadlineNanos / tickNanos));
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            LockSupport.parkNanos(tickNanos);
+            long nowTick = System.nanoTime() / tickNanos;
+            Entry entry;
+            while ((entry = pending.poll()) != null) {
+                place(entry);
+            }
+            while (currentTick < nowTick) {
+                currentTick++;
+                expire(currentTick);
+            }
+        }
+    }
+
+    /**
+     * Puts an entry into the slot of its deadline tick.
+     * @param entry The entry to place.
+     */
+    private void place(Entry entry) {
+        if (entry.deadlineTick <= currentTick) {
+            entry.deadlineTick = currentTick + 1; // Never place into a slot that has already been processed
+        }
+        slots[(int) (entry.deadlineTick & mask)].add(entry);
+    }
+
+    /**
+     * Runs every task whose deadline falls into the given tick and re-arms the ones that want to stay.
+     * @param tick The tick being processed.
+     */
+    private void expire(long tick) {
+        List<Entry> slot = slots[(int) (tick & mask)];
+        int size = slot.size();
+        int keep = 0;
+        for (int i = 0; i < size; i++) {
+            Entry entry = slot.get(i);
+            if (entry.deadlineTick > tick) {
+                slot.set(keep++, entry); // Belongs to a later round of the wheel
+            } else {
+                due.add(entry);
+            }
+        }
+        slot.subList(keep, size).clear();
+
+        long now = System.nanoTime();
+        for (Entry entry : due) {
+            long next;
+            try {
+                next = entry.task.onDeadline(now);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                next = -1;
+            }
+            if (next >= 0) {
+                entry.deadlineTick = next / tickNanos;
+                place(entry);
+            }
+        }
+        due.clear();
+    }
+}
@@ -0,0 +1,71 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * MappedQuestionBank class is a compiled question bank read through a memory-mapped file.
+ * Only the questions that are actually used are decoded, so banks of hundreds of thousands of questions
+ * cost almost nothing on the heap. The file is produced by QuestionBankCompiler and laid out as:
+ * the magic number, the question count n, n + 1 offsets into the text area, then the packed UTF-8 text
+ * where each question is its lines joined by a newline.
+ */
+public class MappedQuestionBank implements QuestionBank {
+    public static final int MAGIC = 0x4B514231; // "KQB1"
+    private static final int HEADER_SIZE = 8;
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int textStart;
+
+    /**
+     * Constructor for MappedQuestionBank.
+     * @param buffer The mapped file.
+     * @throws IOException If the file is not a compiled question bank.
+     */
+    private MappedQuestionBank(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a compiled question bank.");
+        }
+        this.count = buffer.getInt(4);
+        this.textStart = HEADER_SIZE + (count + 1) * 4;
+        if (count < 0 || textStart > buffer.limit() || textStart + buffer.getInt(HEADER_SIZE + count * 4) > buffer.limit()) {
+            throw new IOException("Truncated question bank.");
+        }
+    }
+
+    /**
+     * Maps a compiled question bank. The mapping stays valid after the channel is closed.
+     * @param file The compiled bank file.
+     * @return The bank.
+     * @throws IOException If the file cannot be mapped or is not a compiled bank.
+     */
+    public static MappedQuestionBank open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            return new MappedQuestionBank(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public String[] getQuestion(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        int start = buffer.getInt(HEADER_SIZE + index * 4);
+        int end = buffer.getInt(HEADER_SIZE + (index + 1) * 4);
+        byte[] bytes = new byte[end - start];
+        ByteBuffer slice = buffer.duplicate(); // Independent position, safe for concurrent readers
+        slice.position(textStart + start);
+        slice.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8).split("\n");
+    }
+}
@@ -0,0 +1,271 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outbound class queues the messages sent to a single client and writes them on a small shared pool of writer threads,
+ * so a client on a bad network cannot stall broadcasts to everyone else.
+ * It tracks the pending bytes and the write latency of the connection and applies backpressure:
+ * non-essential messages are throttled and then dropped, and a client that falls too far behind is evicted.
+ * Messages are buffered and only flushed at logical boundaries marked with flush(), so a bundle of messages
+ * leaves in as few packets as possible.
+ * The thresholds can be configured with the system properties kahyeet.throttleBytes, kahyeet.degradeBytes,
+ * kahyeet.evictBytes and kahyeet.evictStallMillis.
+ */
+public class Outbound {
+    private static final long THROTTLE_BYTES = Long.getLong("kahyeet.throttleBytes", 16 * 1024);
+    private static final long DEGRADE_BYTES = Long.getLong("kahyeet.degradeBytes", 64 * 1024);
+    private static final long EVICT_BYTES = Long.getLong("kahyeet.evictBytes", 1024 * 1024);
+    private static final long EVICT_STALL_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("kahyeet.evictStallMillis", 5000));
+    private static final long THROTTLE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1); // At most one non-essential message per interval when throttled
+    private static final String CLOSE = new String("CLOSE"); // Marker queued to close the socket once everything before it is written
+    private static final String FLUSH = new String("FLUSH"); // Marker queued to flush everything written before it
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final ExecutorService WRITERS = Executors.newFixedThreadPool(4, runnable -> {
+        Thread thread = new Thread(runnable, "Outbound-Writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Socket socket;
+    private final Writer out;
+    private final CountingOutputStream counted; // Bytes that reached the socket
+    private final String name;
+    private final ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile long writeStartNanos; // Start of the write in progress, 0 when idle
+    private volatile long lastWriteLatencyNanos;
+    private volatile long maxWriteLatencyNanos;
+    private volatile long lastNonEssentialNanos;
+    private volatile boolean closing = false;
+    private volatile boolean closed = false;
+
+    /**
+     * Constructor for Outbound.
+     * @param socket The socket connected to the client.
+     * @param name The name used in log messages.
+     * @throws IOException If the output stream of the socket cannot be opened.
+     */
+    public Outbound(Socket socket, String name) throws IOException {
+        this.socket = socket;
+        this.counted = new CountingOutputStream(socket.getOutputStream());
+        this.out = new BufferedWriter(new OutputStreamWriter(counted), BUFFER_SIZE);
+        this.name = name;
+    }
+
+    /**
+     * Queues an essential message. It is not written to the network before the next flush().
+     * @param message The message to send.
+     */
+    public void send(String message) {
+        send(message, true);
+    }
+
+    /**
+     * Queues a message, applying the backpressure rules of the connection.
+     * It is not written to the network before the next flush().
+     * @param message The message to send.
+     * @param essential False if the message may be skipped when the client falls behind.
+     */
+    public void send(String message, boolean essential) {
+        if (closing) {
+            return;
+        }
+        long pending = pendingBytes.get();
+        if (pending >= EVICT_BYTES) {
+            evict(pending + " bytes pending");
+            return;
+        }
+        if (!essential) {
+            if (pending >= DEGRADE_BYTES) {
+                ServerMetrics.framesDropped.increment();
+                return;
+            }
+            if (pending >= THROTTLE_BYTES) {
+                long now = System.nanoTime();
+                if (now - lastNonEssentialNanos < THROTTLE_INTERVAL_NANOS) {
+                    ServerMetrics.framesThrottled.increment();
+                    return;
+                }
+                lastNonEssentialNanos = now;
+            }
+        }
+        pendingBytes.addAndGet(encodedLength(message));
+        queue.add(message);
+        schedule();
+    }
+
+    /**
+     * Marks the end of a batch: everything queued so far is flushed to the network.
+     */
+    public void flush() {
+        if (!closing) {
+            queue.add(FLUSH);
+            schedule();
+        }
+    }
+
+    /**
+     * Closes the socket after every queued message has been written.
+     */
+    public void close() {
+        if (!closing) {
+            closing = true;
+            queue.add(CLOSE);
+            schedule();
+        }
+    }
+
+    /**
+     * Closes the socket immediately because the client cannot keep up.
+     * @param reason The reason written to the log.
+     */
+    public void evict(String reason) {
+        if (closed) {
+            return;
+        }
+        ServerMetrics.slowConsumerEvictions.increment();
+        System.out.println("Evicting slow client " + name + ": " + reason + ".");
+        closing = true;
+        closeSocket();
+    }
+
+    /**
+     * Checks if a write has been blocked for longer than the stall threshold.
+     * @param now The current value of System.nanoTime().
+     * @return True if the connection is stalled, false otherwise.
+     */
+    public boolean isStalled(long now) {
+        long start = writeStartNanos;
+        return start != 0 && now - start > EVICT_STALL_NANOS;
+    }
+
+    /**
+     * Checks if every queued message has been written, or the socket is closed.
+     * @return True if nothing is left to write, false otherwise.
+     */
+    public boolean isIdle() {
+        return closed || (queue.isEmpty() && !scheduled.get());
+    }
+
+    /**
+     * Checks if the socket has been closed.
+     * @return True if closed, false otherwise.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Gets the number of bytes written to the socket.
+     * @return The number of bytes.
+     */
+    public long getBytesWritten() {
+        return counted.getCount();
+    }
+
+    public long getPendingBytes() {
+        return pendingBytes.get();
+    }
+
+    public long getLastWriteLatencyNanos() {
+        return lastWriteLatencyNanos;
+    }
+
+    public long getMaxWriteLatencyNanos() {
+        return maxWriteLatencyNanos;
+    }
+
+    /**
+     * Submits a drain of the queue to the writer pool unless one is already scheduled.
+     */
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            WRITERS.execute(this::drain);
+        }
+    }
+
+    /**
+     * Writes queued messages until the queue is empty. Runs on a writer thread.
+     */
+    private void drain() {
+        try {
+            String message;
+            while (!closed && (message = queue.poll()) != null) {
+                long start = System.nanoTime();
+                writeStartNanos = start;
+                if (message == CLOSE) {
+                    out.flush();
+                    closeSocket();
+                    return;
+                } else if (message == FLUSH) {
+                    out.flush();
+                } else {
+                    out.write(message);
+                    out.write('\n');
+                    int length = encodedLength(message);
+                    pendingBytes.addAndGet(-length);
+                    ServerMetrics.framesSent.increment();
+                    ServerMetrics.bytesSent.add(length);
+                    TrafficStats.recordSent(message, length);
+                }
+                long latency = System.nanoTime() - start; // Includes the network write when the buffer was flushed
+                writeStartNanos = 0;
+                lastWriteLatencyNanos = latency;
+                if (latency > maxWriteLatencyNanos) {
+                    maxWriteLatencyNanos = latency;
+                }
+            }
+        } catch (IOException e) {
+            closing = true;
+            closeSocket();
+        } finally {
+            scheduled.set(false);
+            if (!closed && !queue.isEmpty()) {
+                schedule(); // A message arrived after the last poll
+            }
+        }
+    }
+
+    /**
+     * Closes the socket, which also unblocks the thread reading from it.
+     */
+    private void closeSocket() {
+        closed = true;
+        writeStartNanos = 0;
+        queue.clear();
+        try {
+            socket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Computes the number of bytes a message occupies on the wire, including the line separator.
+     * @param message The message.
+     * @return The length in UTF-8 bytes.
+     */
+    public static int encodedLength(String message) {
+        int length = message.length() + 1;
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c >= 0x800) {
+                length += Character.isSurrogate(c) ? 1 : 2; // A surrogate pair takes 4 bytes in total
+            } else if (c >= 0x80) {
+                length += 1;
+            }
+        }
+        return length;
+    }
+}
@@ -1,6 +1,7 @@
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.BitSet;
 
 /**
  * Player class represents a player in the Kahyeet game.
@@ -10,6 +11,9 @@ public class Player {
     private String username;
     private int score;
     private boolean finished; // Field to track if the player has completed all questions
+    private PlayerOrder order; // Order in which the player sees the questions of the current game
+    private final BitSet answered = new BitSet(); // Displayed questions already answered
+    private String team; // Team chosen at login, null when playing alone
 
     /**
      * Constructor for Player.
@@ -45,6 +49,61 @@ public class Player {
         this.score = score;
     }
 
+    /**
+     * Adds points to the score of the player.
+     * @param points The points to add.
+     */
+    public void addScore(int points) {
+        this.score += points;
+    }
+
+    public PlayerOrder getOrder() {
+        return order;
+    }
+
+    public void setOrder(PlayerOrder order) {
+        this.order = order;
+    }
+
+    /**
+     * Records the answer to a question, so each question is scored only once.
+     * @param displayIndex The position of the question in the order of the player.
+     * @return True if the question was not answered before, false otherwise.
+     */
+    public boolean markAnswered(int displayIndex) {
+        if (answered.get(displayIndex)) {
+            return false;
+        }
+        answered.set(displayIndex);
+        return true;
+    }
+
+    /**
+     * Gets the team of the player.
+     * @return The team, or null if the player is not in a team.
+     */
+    public String getTeam() {
+        return team;
+    }
+
+    /**
+     * Sets the team of the player.
+     * @param team The team, or null.
+     */
+    public void setTeam(String team) {
+        this.team = team;
+    }
+
+    /**
+     * Resets the results of the player for a new game.
+     */
+    public void reset() {
+        score = 0;
+        finished = false;
+        order = null;
+        answered.clear();
+    }
+
     /**
      * Marks the player as finished.
      */
@@ -0,0 +1,145 @@
+/**
+ * PlayerOrder class describes the order in which one player sees the questions and their options.
+ * Nothing is materialized: the question order is a keyed Feistel permutation evaluated on demand, and the
+ * option order of each question is one of the 24 permutations of four options picked by a hash of the seed.
+ * The whole order of a player therefore costs a few fields, and any displayed position maps back to the bank
+ * in constant time. The same seed always gives the same order, so games are reproducible.
+ */
+public class PlayerOrder {
+    private static final int ROUNDS = 4;
+    private static final byte[][] OPTION_PERMUTATIONS = buildOptionPermutations(); // Displayed option -> original option
+
+    private final long seed;
+    private final int questionCount;
+    private final boolean shuffleQuestions;
+    private final boolean shuffleAnswers;
+    private final int halfBits;
+    private final int halfMask;
+
+    /**
+     * Constructor for PlayerOrder.
+     * @param seed The seed of the player.
+     * @param questionCount The number of questions in the game.
+     * @param shuffleQuestions True to shuffle the questions.
+     * @param shuffleAnswers True to shuffle the options of each question.
+     */
+    public PlayerOrder(long seed, int questionCount, boolean shuffleQuestions, boolean shuffleAnswers) {
+        this.seed = seed;
+        this.questionCount = questionCount;
+        this.shuffleQuestions = shuffleQuestions;
+        this.shuffleAnswers = shuffleAnswers;
+        int bits = 2;
+        while ((1L << bits) < questionCount) {
+            bits += 2; // The Feistel network needs two halves of equal width
+        }
+        this.halfBits = bits / 2;
+        this.halfMask = (1 << halfBits) - 1;
+    }
+
+    /**
+     * Derives the seed of a player from the seed of the game.
+     * @param gameSeed The seed of the game.
+     * @param username The username of the player.
+     * @return The seed of the player.
+     */
+    public static long playerSeed(long gameSeed, String username) {
+        return mix(gameSeed ^ mix(username.hashCode()));
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Maps a displayed question position to the question of the game.
+     * @param displayIndex The position in the order seen by the player.
+     * @return The index of the question in the game.
+     */
+    public int questionAt(int displayIndex) {
+        if (!shuffleQuestions || questionCount < 2) {
+            return displayIndex;
+        }
+        int index = displayIndex;
+        do {
+            index = encrypt(index); // Cycle-walk until the result falls inside the game
+        } while (index >= questionCount);
+        return index;
+    }
+
+    /**
+     * Maps a displayed option of a question to the option in the question bank.
+     * @param question The index of the question in the game.
+     * @param displayedOption The option as displayed to the player.
+     * @return The original option.
+     */
+    public int originalOption(int question, int displayedOption) {
+        if (!shuffleAnswers) {
+            return displayedOption;
+        }
+        int code = (int) Long.remainderUnsigned(mix(seed ^ (question * 0x9E3779B97F4A7C15L)), OPTION_PERMUTATIONS.length);
+        return OPTION_PERMUTATIONS[code][displayedOption];
+    }
+
+    /**
+     * Maps an option of a question in the bank to the option displayed to the player.
+     * @param question The index of the question in the game.
+     * @param originalOption The original option.
+     * @return The displayed option.
+     */
+    public int displayedOption(int question, int originalOption) {
+        for (int option = 0; option < OPTION_PERMUTATIONS[0].length; option++) {
+            if (originalOption(question, option) == originalOption) {
+                return option;
+            }
+        }
+        return originalOption;
+    }
+
+    /**
+     * Applies the keyed Feistel network, a bijection on [0, 2^(2 * halfBits)).
+     * @param value The value to permute.
+     * @return The permuted value.
+     */
+    private int encrypt(int value) {
+        int left = value >>> halfBits;
+        int right = value & halfMask;
+        for (int round = 0; round < ROUNDS; round++) {
+            int next = left ^ ((int) mix(seed + round * 0xD1B54A32D192ED03L + right) & halfMask);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+
+    /**
+     * SplitMix64 finalizer, a fast and well-distributed 64-bit hash.
+     * @param value The value to hash.
+     * @return The hash.
+     */
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Builds the 24 permutations of four options.
+     * @return The permutations, each mapping a displayed option to an original option.
+     */
+    private static byte[][] buildOptionPermutations() {
+        byte[][] permutations = new byte[24][];
+        int count = 0;
+        for (int a = 0; a < 4; a++) {
+            for (int b = 0; b < 4; b++) {
+                for (int c = 0; c < 4; c++) {
+                    int d = 6 - a - b - c;
+                    if (a != b && a != c && b != c) {
+                        permutations[count++] = new byte[]{(byte) a, (byte) b, (byte) c, (byte) d};
+                    }
+                }
+            }
+        }
+        return permutations;
+    }
+}
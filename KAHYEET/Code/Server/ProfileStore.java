@@ -0,0 +1,547 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * ProfileStore class keeps the all-time statistics of every player across sessions: the number of games, the
+ * total and the best score. Each player has a fixed-size record in a file, found through an index of usernames
+ * built when the store is opened, so a profile is read or updated with one positioned access instead of a scan
+ * of scores.txt. Recently used profiles are kept in a small LRU cache. A game updates the profiles of its players
+ * as they finish, and the changed records are written together when the game ends. The best players are kept
+ * sorted in a tree of bounded size; totals only grow, so a player can enter it or move up but never has to be
+ * looked for outside it, and the all-time leaderboard is read without touching the file.
+ * Used by the game actor only.
+ *
+ * File layout: MAGIC (4 bytes), VERSION (4 bytes), RECORD_SIZE (4 bytes), 4 reserved bytes, then the records.
+ * Each record is the length of the username in bytes (1 byte), the username in UTF-8 padded to MAX_NAME_BYTES,
+ * the games (4 bytes), the total score (8 bytes), the best score (4 bytes), the last score (4 bytes), the time of
+ * the last game in epoch milliseconds (8 bytes, 0 if unknown) and 4 reserved bytes.
+ *
+ * Usage: java ProfileStore [username]
+ *        java ProfileStore --import scores.txt
+ */
+public class ProfileStore {
+    public static final int MAGIC = 0x4B505331; // "KPS1"
+    public static final int VERSION = 1;
+    public static final String FILE_NAME = "profiles.dat";
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 96;
+    public static final int MAX_NAME_BYTES = 63;
+    public static final int RANKED = 100; // Players kept in the all-time leaderboard
+
+    private static final int CACHE_SIZE = Integer.getInteger("kahyeet.profileCache", 1024);
+    private static final Pattern SCORE_LINE = Pattern.compile("^(.*): (-?\\d+)( \\(.*\\))?$");
+    private static final DateTimeFormatter SEPARATOR_DATE = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
+
+    // Best total first, then the most games, then by name so that no two players are equal
+    private static final Comparator<Profile> RANKING = (a, b) -> {
+        int byTotal = Long.compare(b.totalScore, a.totalScore);
+        if (byTotal != 0) {
+            return byTotal;
+        }
+        int byGames = Integer.compare(b.games, a.games);
+        return byGames != 0 ? byGames : a.username.compareTo(b.username);
+    };
+
+    private final File file;
+    private final FileChannel channel; // Null if the file could not be opened, profiles are then kept in memory only
+    private final Map<String, Integer> slots = new HashMap<>(); // Record number of every username
+    private final List<Integer> freeSlots = new ArrayList<>(); // Empty or duplicate records, reused by new profiles
+    private int recordCount = 0; // Records in the file, including free ones
+    private final LinkedHashMap<String, Profile> cache;
+    private final List<Profile> dirty = new ArrayList<>(); // Changed since the last flush, in the order of the changes
+    private final TreeSet<Profile> ranking = new TreeSet<>(RANKING); // Copies, so cached profiles can change freely
+    private final Map<String, Profile> ranked = new HashMap<>();
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+
+    /**
+     * Profile class holds the all-time statistics of one player.
+     */
+    public static class Profile {
+        private final String username;
+        private final int slot;
+        private int games = 0;
+        private long totalScore = 0;
+        private int bestScore = 0;
+        private int lastScore = 0;
+        private long lastPlayedMillis = 0;
+        private boolean changed = false; // Not written to the file yet
+
+        private Profile(String username, int slot) {
+            this.username = username;
+            this.slot = slot;
+        }
+
+        private Profile copy() {
+            Profile copy = new Profile(username, slot);
+            copy.games = games;
+            copy.totalScore = totalScore;
+            copy.bestScore = bestScore;
+            copy.lastScore = lastScore;
+            copy.lastPlayedMillis = lastPlayedMillis;
+            return copy;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public int getGames() {
+            return games;
+        }
+
+        public long getTotalScore() {
+            return totalScore;
+        }
+
+        public int getBestScore() {
+            return bestScore;
+        }
+
+        public int getLastScore() {
+            return lastScore;
+        }
+
+        /**
+         * Gets the time of the last game.
+         * @return The time in epoch milliseconds, 0 if unknown.
+         */
+        public long getLastPlayedMillis() {
+            return lastPlayedMillis;
+        }
+
+        /**
+         * Gets the average score per game.
+         * @return The average, rounded.
+         */
+        public long getAverage() {
+            return games == 0 ? 0 : Math.round((double) totalScore / games);
+        }
+
+        @Override
+        public String toString() {
+            return username + ": " + games + " games, total " + totalScore + ", average " + getAverage()
+                    + ", best " + bestScore + ", last " + lastScore
+                    + (lastPlayedMillis != 0 ? " on " + LocalDateTime.ofInstant(Instant.ofEpochMilli(lastPlayedMillis), ZoneId.systemDefault()).format(SEPARATOR_DATE) : "");
+        }
+    }
+
+    /**
+     * Constructor for ProfileStore.
+     * @param file The file of the store.
+     * @param channel The open file, or null to keep profiles in memory only.
+     */
+    private ProfileStore(File file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Profile> eldest) {
+                if (size() <= CACHE_SIZE || ProfileStore.this.channel == null) {
+                    return false; // Without a file the cache is the only copy
+                }
+                if (eldest.getValue().changed) {
+                    write(eldest.getValue()); // Written back before it is forgotten
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Opens a store, creating the file if needed, and indexes its records.
+     * A record cut short, for example by a crash, is ignored. Empty records, left when a crash lost a new profile
+     * that an eviction had already written past, and duplicates are reused by new profiles.
+     * @param file The file of the store.
+     * @return The store; it keeps profiles in memory only if the file cannot be used.
+     */
+    public static ProfileStore open(File file) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (channel.size() < HEADER_SIZE) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(0).flip();
+                channel.truncate(0);
+                channel.write(header, 0);
+            }
+            ProfileStore store = new ProfileStore(file, channel);
+            store.index();
+            System.out.println("Profiles of " + store.size() + " players loaded from " + file.getName());
+            return store;
+        } catch (IOException e) {
+            System.out.println("Player profiles are not saved: " + e.getMessage());
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+            return new ProfileStore(file, null);
+        }
+    }
+
+    /**
+     * Reads every record once to build the index of usernames and the all-time leaderboard.
+     * @throws IOException If the file cannot be read or is not a profile store.
+     */
+    private void index() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != RECORD_SIZE) {
+                throw new IOException(file.getName() + " is not a profile store.");
+            }
+            in.readInt();
+            byte[] bytes = new byte[RECORD_SIZE];
+            while (true) {
+                try {
+                    in.readFully(bytes);
+                } catch (EOFException e) {
+                    break;
+                }
+                Profile profile = decode(ByteBuffer.wrap(bytes), recordCount++);
+                if (profile.username.isEmpty()) {
+                    freeSlots.add(profile.slot); // Hole left by a crash before a new profile was written
+                    continue;
+                }
+                Integer other = slots.get(profile.username);
+                if (other != null) {
+                    // Should not happen; keep the record with the most games, totals only grow
+                    Profile kept = read(other);
+                    if (kept != null && kept.games >= profile.games) {
+                        freeSlots.add(profile.slot);
+                        continue;
+                    }
+                    freeSlots.add(other);
+                    System.out.println("Duplicate profile of " + profile.username + " repaired.");
+                }
+                slots.put(profile.username, profile.slot);
+                rank(profile);
+            }
+        }
+    }
+
+    /**
+     * Adds the result of a game to the profile of a player, creating the profile on the first game.
+     * The record is written at the next flush.
+     * @param username The username of the player.
+     * @param score The score of the game.
+     */
+    public void record(String username, int score) {
+        record(username, score, System.currentTimeMillis());
+    }
+
+    /**
+     * Adds the result of a game to the profile of a player, creating the profile on the first game.
+     * @param username The username of the player.
+     * @param score The score of the game.
+     * @param timeMillis The time of the game in epoch milliseconds, 0 if unknown.
+     */
+    private void record(String username, int score, long timeMillis) {
+        Profile profile = load(username);
+        if (profile == null) {
+            if (username.getBytes(StandardCharsets.UTF_8).length > MAX_NAME_BYTES) {
+                System.out.println("No profile for " + username + ": the username is too long.");
+                return;
+            }
+            int slot = freeSlots.isEmpty() ? recordCount++ : freeSlots.remove(freeSlots.size() - 1);
+            profile = new Profile(username, slot);
+            slots.put(username, slot);
+            cache.put(username, profile);
+        }
+        profile.games++;
+        profile.totalScore += score;
+        profile.bestScore = profile.games == 1 ? score : Math.max(profile.bestScore, score);
+        profile.lastScore = score;
+        profile.lastPlayedMillis = timeMillis;
+        if (!profile.changed) {
+            profile.changed = true;
+            dirty.add(profile);
+        }
+        rank(profile);
+    }
+
+    /**
+     * Writes the records changed since the last flush, in file order, and forces them to the disk.
+     */
+    public void flush() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        dirty.sort((a, b) -> Integer.compare(a.slot, b.slot));
+        for (Profile profile : dirty) {
+            if (profile.changed) { // Already written if it was evicted
+                write(profile);
+            }
+        }
+        dirty.clear();
+        if (channel != null) {
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Gets the profile of a player.
+     * @param username The username of the player.
+     * @return A copy of the profile, or null if the player never played.
+     */
+    public Profile get(String username) {
+        Profile profile = load(username);
+        return profile != null ? profile.copy() : null;
+    }
+
+    /**
+     * Lists the best players of all time.
+     * @param count The maximum number of players, at most RANKED.
+     * @return Copies of the profiles, best total first.
+     */
+    public List<Profile> top(int count) {
+        List<Profile> top = new ArrayList<>(Math.min(count, ranking.size()));
+        for (Profile profile : ranking) {
+            if (top.size() == count) {
+                break;
+            }
+            top.add(profile.copy());
+        }
+        return top;
+    }
+
+    /**
+     * Gets the number of players with a profile.
+     * @return The number of profiles.
+     */
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * Builds a report of one profile, or of the all-time leaderboard.
+     * @param username The username of the player, or an empty string for the leaderboard.
+     * @param count The number of players in the leaderboard.
+     * @return The report.
+     */
+    public String report(String username, int count) {
+        StringBuilder report = new StringBuilder();
+        if (!username.isEmpty()) {
+            Profile profile = load(username);
+            report.append(profile != null ? profile.toString() : "No profile for " + username + ".").append('\n');
+            return report.toString();
+        }
+        report.append("All-time leaderboard (").append(size()).append(" players):\n");
+        int rank = 1;
+        for (Profile profile : top(count)) {
+            report.append("  ").append(rank++).append(". ").append(profile).append('\n');
+        }
+        return report.toString();
+    }
+
+    /**
+     * Finds a profile in the cache, or reads it from the file and caches it.
+     * @param username The username of the player.
+     * @return The profile, or null if the player never played.
+     */
+    private Profile load(String username) {
+        Profile profile = cache.get(username);
+        if (profile != null) {
+            return profile;
+        }
+        Integer slot = slots.get(username);
+        if (slot == null) {
+            return null;
+        }
+        profile = read(slot);
+        if (profile == null) {
+            // Unreadable record, start again from the leaderboard copy if there is one
+            profile = ranked.containsKey(username) ? ranked.get(username).copy() : new Profile(username, slot);
+        }
+        cache.put(username, profile);
+        return profile;
+    }
+
+    /**
+     * Keeps a profile in the all-time leaderboard if it belongs there.
+     * @param profile The profile, after its total grew.
+     */
+    private void rank(Profile profile) {
+        Profile previous = ranked.remove(profile.username);
+        if (previous != null) {
+            ranking.remove(previous);
+        } else if (ranking.size() >= RANKED && RANKING.compare(profile, ranking.last()) > 0) {
+            return; // Below the last of a full leaderboard
+        }
+        Profile copy = profile.copy();
+        ranking.add(copy);
+        ranked.put(copy.username, copy);
+        if (ranking.size() > RANKED) {
+            ranked.remove(ranking.pollLast().username);
+        }
+    }
+
+    /**
+     * Reads the record of a profile.
+     * @param slot The record number.
+     * @return The profile, or null if it cannot be read.
+     */
+    private Profile read(int slot) {
+        if (channel == null) {
+            return null;
+        }
+        try {
+            record.clear();
+            long position = HEADER_SIZE + (long) slot * RECORD_SIZE;
+            while (record.hasRemaining()) {
+                if (channel.read(record, position + record.position()) < 0) {
+                    return null;
+                }
+            }
+            record.flip();
+            return decode(record, slot);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Writes the record of a profile.
+     * @param profile The profile.
+     */
+    private void write(Profile profile) {
+        profile.changed = false;
+        if (channel == null) {
+            return;
+        }
+        byte[] name = profile.username.getBytes(StandardCharsets.UTF_8);
+        record.clear();
+        record.put((byte) name.length).put(name).put(new byte[MAX_NAME_BYTES - name.length]);
+        record.putInt(profile.games).putLong(profile.totalScore).putInt(profile.bestScore).putInt(profile.lastScore);
+        record.putLong(profile.lastPlayedMillis).putInt(0);
+        record.flip();
+        try {
+            long position = HEADER_SIZE + (long) profile.slot * RECORD_SIZE;
+            while (record.hasRemaining()) {
+                channel.write(record, position + record.position());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Decodes a record.
+     * @param buffer The record, positioned at its start.
+     * @param slot The record number.
+     * @return The profile.
+     */
+    private static Profile decode(ByteBuffer buffer, int slot) {
+        int length = Math.min(buffer.get() & 0xFF, MAX_NAME_BYTES);
+        byte[] name = new byte[MAX_NAME_BYTES];
+        buffer.get(name);
+        Profile profile = new Profile(new String(name, 0, length, StandardCharsets.UTF_8), slot);
+        profile.games = buffer.getInt();
+        profile.totalScore = buffer.getLong();
+        profile.bestScore = buffer.getInt();
+        profile.lastScore = buffer.getInt();
+        profile.lastPlayedMillis = buffer.getLong();
+        return profile;
+    }
+
+    /**
+     * Adds every score of a score file to the store, as one game each, dated by the separator that starts the game.
+     * @param scores The score file written by the server.
+     * @return The number of scores added.
+     * @throws IOException If the file cannot be read.
+     */
+    public int importScores(File scores) throws IOException {
+        int count = 0;
+        long gameMillis = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(scores))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("---")) {
+                    continue;
+                }
+                try {
+                    gameMillis = LocalDateTime.parse(line.trim(), SEPARATOR_DATE).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                    continue;
+                } catch (DateTimeParseException e) {
+                    // Not a separator, a score
+                }
+                Matcher matcher = SCORE_LINE.matcher(line);
+                if (matcher.matches()) {
+                    try {
+                        record(matcher.group(1), Integer.parseInt(matcher.group(2)), gameMillis);
+                        count++;
+                    } catch (NumberFormatException e) {
+                        System.out.println("Skipped score: " + line);
+                    }
+                }
+            }
+        }
+        flush();
+        return count;
+    }
+
+    /**
+     * Closes the file after writing the pending records.
+     */
+    public void close() {
+        flush();
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        ProfileStore store = open(new File(FILE_NAME));
+        try {
+            if (args.length == 2 && args[0].equals("--import")) {
+                if (store.size() > 0) {
+                    System.out.println(FILE_NAME + " already holds profiles, remove it to import again.");
+                    return;
+                }
+                try {
+                    System.out.println(store.importScores(new File(args[1])) + " scores imported for " + store.size() + " players.");
+                } catch (IOException e) {
+                    System.out.println("Failed to read " + args[1] + ": " + e.getMessage());
+                }
+            } else if (args.length == 0 || (args.length == 1 && !args[0].startsWith("--"))) {
+                System.out.print(store.report(args.length == 1 ? args[0] : "", 20));
+            } else {
+                System.out.println("Usage: java ProfileStore [username] | --import <scores.txt>");
+            }
+        } finally {
+            store.close();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * QuestionBank interface is a read-only bank of questions.
+ * A question is returned as its lines in the questions.txt format: the question text followed by the four options,
+ * with the correct option marked by _@#.
+ */
+public interface QuestionBank {
+    /**
+     * Gets the number of questions in the bank.
+     * @return The number of questions.
+     */
+    int size();
+
+    /**
+     * Gets a question.
+     * @param index The index of the question.
+     * @return The lines of the question.
+     */
+    String[] getQuestion(int index);
+
+    /**
+     * Picks distinct questions at random without touching the others (Floyd's sampling algorithm).
+     * @param count The number of questions to pick; the whole bank if count is 0 or larger than the bank.
+     * @param random The source of randomness.
+     * @return The indices of the picked questions, in bank order.
+     */
+    default int[] sample(int count, Random random) {
+        int size = size();
+        if (count <= 0 || count >= size) {
+            int[] all = new int[size];
+            for (int i = 0; i < size; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        BitSet picked = new BitSet(size);
+        for (int j = size - count; j < size; j++) {
+            int candidate = random.nextInt(j + 1);
+            picked.set(picked.get(candidate) ? j : candidate);
+        }
+        int[] indices = new int[count];
+        for (int i = picked.nextSetBit(0), k = 0; i >= 0; i = picked.nextSetBit(i + 1)) {
+            indices[k++] = i;
+        }
+        return indices;
+    }
+}
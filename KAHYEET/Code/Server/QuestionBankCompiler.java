@@ -0,0 +1,56 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * QuestionBankCompiler class converts a questions.txt file into a compiled bank for MappedQuestionBank.
+ * Usage: java QuestionBankCompiler [questions.txt] [questions.bank]
+ */
+public class QuestionBankCompiler {
+    public static void main(String[] args) {
+        File input = new File(args.length > 0 ? args[0] : "questions.txt");
+        File output = new File(args.length > 1 ? args[1] : "questions.bank");
+        try {
+            long start = System.nanoTime();
+            TextQuestionBank bank = TextQuestionBank.load(input);
+            compile(bank, output);
+            System.out.println("Compiled " + bank.size() + " questions into " + output + " in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms (" + bank.getMalformedCount() + " malformed skipped).");
+        } catch (IOException e) {
+            System.out.println("Failed to compile " + input + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes a bank in the compiled format.
+     * @param bank The bank to compile.
+     * @param output The compiled file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void compile(QuestionBank bank, File output) throws IOException {
+        int count = bank.size();
+        byte[][] texts = new byte[count][];
+        int[] offsets = new int[count + 1];
+        for (int i = 0; i < count; i++) {
+            texts[i] = String.join("\n", bank.getQuestion(i)).getBytes(StandardCharsets.UTF_8);
+            offsets[i + 1] = Math.addExact(offsets[i], texts[i].length);
+        }
+        File temp = new File(output.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 64 * 1024))) {
+            out.writeInt(MappedQuestionBank.MAGIC);
+            out.writeInt(count);
+            for (int offset : offsets) {
+                out.writeInt(offset);
+            }
+            for (byte[] text : texts) {
+                out.write(text);
+            }
+        }
+        if (output.exists() && !output.delete() || !temp.renameTo(output)) {
+            throw new IOException("Unable to replace " + output);
+        }
+    }
+}
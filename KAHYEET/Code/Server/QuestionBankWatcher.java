@@ -0,0 +1,151 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * QuestionBankWatcher class keeps the question bank of the server in memory and reloads it when its files change.
+ * A background thread watches the directory of the questions; after a change it waits until the files have stopped
+ * changing, loads and validates the new bank, then swaps it in with a single reference write. Banks are never changed
+ * once loaded, so a game always draws from one complete version without reading the disk, and a file saved halfway
+ * through an edit keeps the previous version in place.
+ */
+public class QuestionBankWatcher implements Runnable {
+    private static final long SETTLE_MILLIS = 500; // The files must stay unchanged this long before they are read
+
+    private final File textFile;
+    private final File bankFile;
+    private final AtomicReference<QuestionBank> current = new AtomicReference<>();
+    private int version = 0; // Only changed by the loading thread
+
+    /**
+     * Constructor for QuestionBankWatcher.
+     * @param textFile The questions.txt file.
+     * @param bankFile The compiled bank, used instead of the text file when it is newer.
+     */
+    public QuestionBankWatcher(File textFile, File bankFile) {
+        this.textFile = textFile.getAbsoluteFile();
+        this.bankFile = bankFile.getAbsoluteFile();
+    }
+
+    /**
+     * Loads the bank and starts watching its files.
+     */
+    public void start() {
+        reload();
+        Thread thread = new Thread(this, "Question-Watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Gets the current version of the bank.
+     * @return The bank, or null if no version could be loaded.
+     */
+    public QuestionBank getBank() {
+        return current.get();
+    }
+
+    @Override
+    public void run() {
+        Path directory = textFile.getParentFile().toPath();
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            while (true) {
+                WatchKey key = watcher.take();
+                if (isQuestionChange(key)) {
+                    awaitQuiet(watcher);
+                    reload();
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Unable to watch the questions, changes will not be reloaded.");
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits until the question files have not changed for SETTLE_MILLIS, as editors often write a file in several steps.
+     * @param watcher The watch service.
+     * @throws InterruptedException If the thread is interrupted.
+     */
+    private void awaitQuiet(WatchService watcher) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SETTLE_MILLIS);
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            WatchKey key = watcher.poll(remaining, TimeUnit.NANOSECONDS);
+            if (key == null) {
+                return;
+            }
+            if (isQuestionChange(key)) {
+                deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SETTLE_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Consumes the events of a key and re-arms it.
+     * @param key The signalled key.
+     * @return True if one of the events concerns the question files; other files of the directory, such as
+     *         scores.txt, change during every game.
+     */
+    private boolean isQuestionChange(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            String name = String.valueOf(event.context());
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(textFile.getName()) || name.equals(bankFile.getName())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * Loads the bank from disk and swaps it in if it is valid. A reload is rejected if the bank is empty or the text
+     * file ends in the middle of a question, so the previous version stays in use.
+     * @return True if a new version was swapped in.
+     */
+    boolean reload() {
+        QuestionBank bank;
+        File source;
+        try {
+            if (bankFile.isFile() && bankFile.lastModified() >= textFile.lastModified()) {
+                source = bankFile;
+                bank = MappedQuestionBank.open(bankFile); // Written to a temporary file and renamed, so never seen half-written
+            } else {
+                source = textFile;
+                TextQuestionBank text = TextQuestionBank.load(textFile);
+                if (text.isTruncated() && current.get() != null) {
+                    System.out.println(textFile.getName() + " ends with an unfinished question, keeping question bank version " + version + ".");
+                    return false;
+                }
+                if (text.getMalformedCount() > 0) {
+                    System.out.println("Skipped " + text.getMalformedCount() + " malformed questions in " + textFile.getName() + ".");
+                }
+                bank = text;
+            }
+        } catch (IOException e) {
+            System.out.println("Failed to load questions" + (current.get() != null ? ", keeping question bank version " + version : "") + ".");
+            e.printStackTrace();
+            return false;
+        }
+        if (bank.size() == 0 && current.get() != null) {
+            System.out.println(source.getName() + " has no questions, keeping question bank version " + version + ".");
+            return false;
+        }
+        version++;
+        current.set(bank);
+        System.out.println("Question bank version " + version + " loaded from " + source.getName() + " (" + bank.size() + " questions).");
+        return true;
+    }
+}
@@ -0,0 +1,457 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ReplayHarness class replays a recorded game, or a synthetic one, against the game logic of the server.
+ * Clients are ClientHandlers on sockets that discard their output, fed the lines their clients sent, and the
+ * server runs on a virtual clock that jumps from event to event, so a game is replayed as fast as the logic
+ * allows while rate limits and response times see the recorded timeline. The replay is deterministic:
+ * the same log gives the same orders, scores and leaderboard. The game actor is not started, so the commands of
+ * every event run on the replaying thread before the next event. The harness reports the throughput and the
+ * processing latency of each event type, and checks the scores and question orders against the recording.
+ *
+ * Usage: java ReplayHarness games/game_20240101_120000.kgr
+ *        java ReplayHarness --synthetic [players] [questions] [seed]
+ *        java ReplayHarness --soak [games] [players] [questions]
+ * The soak mode plays synthetic games back to back on one server, going back to the lobby between games with the
+ * players still connected, and reports the heap and thread count so that state leaking from game to game shows up.
+ * Add --verbose to keep the server log, and --record to record the replay itself in the games directory.
+ * Run it from a scratch directory, since scores.txt is written as in a real game.
+ */
+public class ReplayHarness {
+    private static final long ROSTER_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final String[] TYPE_NAMES = {"", "JOIN", "START", "QUESTIONS_SENT", "ANSWER", "FINISHED", "KICK", "DISCONNECT", "FINISH_ALL", "LEADERBOARD"};
+
+    private final AtomicLong virtualNanos = new AtomicLong(TimeUnit.SECONDS.toNanos(1));
+    private final Map<String, ClientHandler> handlers = new HashMap<>();
+    private final Map<String, Integer> expectedScores = new HashMap<>();
+    private final long[][] latencies = new long[TYPE_NAMES.length][];
+    private final int[] counts = new int[TYPE_NAMES.length];
+    private final boolean synthetic;
+    private long nextRosterTick;
+    private int scoreMismatches = 0;
+    private int orderMismatches = 0;
+    private int leaderboardMismatches = 0;
+
+    /**
+     * ReplaySocket class is an unconnected socket whose output is discarded.
+     */
+    private static class ReplaySocket extends Socket {
+        private final SocketAddress address;
+        private boolean closed = false;
+
+        private ReplaySocket(String username) {
+            this.address = InetSocketAddress.createUnresolved("replay-" + username, 0);
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return OutputStream.nullOutputStream();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return InputStream.nullInputStream();
+        }
+
+        @Override
+        public SocketAddress getRemoteSocketAddress() {
+            return address;
+        }
+
+        @Override
+        public synchronized void close() {
+            closed = true;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+    }
+
+    /**
+     * Constructor for ReplayHarness.
+     * @param synthetic True if the events were generated, so there are no recorded results to check.
+     */
+    public ReplayHarness(boolean synthetic) {
+        this.synthetic = synthetic;
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new long[1024];
+        }
+    }
+
+    public static void main(String[] args) {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        boolean verbose = arguments.remove("--verbose");
+        boolean record = arguments.remove("--record");
+        if (arguments.isEmpty()) {
+            System.out.println("Usage: java ReplayHarness <file.kgr> | --synthetic [players] [questions] [seed] | --soak [games] [players] [questions] [--verbose] [--record]");
+            return;
+        }
+        if (arguments.get(0).equals("--soak")) {
+            int games;
+            int players;
+            int questions;
+            try {
+                games = arguments.size() > 1 ? Integer.parseInt(arguments.get(1)) : 100;
+                players = arguments.size() > 2 ? Integer.parseInt(arguments.get(2)) : 200;
+                questions = arguments.size() > 3 ? Integer.parseInt(arguments.get(3)) : 10;
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid number: " + e.getMessage());
+                return;
+            }
+            PrintStream console = System.out;
+            if (!verbose) {
+                System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            }
+            boolean stable = soak(games, players, questions, console);
+            System.exit(stable ? 0 : 1);
+        }
+        List<GameRecordReader.Event> events;
+        boolean synthetic = arguments.get(0).equals("--synthetic");
+        try {
+            if (synthetic) {
+                int players = arguments.size() > 1 ? Integer.parseInt(arguments.get(1)) : 1000;
+                int questions = arguments.size() > 2 ? Integer.parseInt(arguments.get(2)) : 10;
+                long seed = arguments.size() > 3 ? Long.parseLong(arguments.get(3)) : 42;
+                events = generate(players, questions, seed);
+            } else {
+                events = GameRecordReader.read(new File(arguments.get(0)));
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("Unable to load the game: " + e.getMessage());
+            return;
+        }
+
+        PrintStream console = System.out;
+        if (!verbose) {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream())); // The server log would dominate the timings
+        }
+        ReplayHarness harness = new ReplayHarness(synthetic);
+        long start = System.nanoTime();
+        GameRecorder recorder = record ? GameRecorder.create() : GameRecorder.discarding();
+        harness.replay(events, recorder);
+        long elapsed = System.nanoTime() - start;
+        long drainNanos = harness.awaitOutboundIdle(); // The counters are final only once the writers are done
+        recorder.close();
+        System.setOut(console);
+        harness.report(events, elapsed);
+        console.printf("Outbound queues drained %.1f ms after the last event.%n", drainNanos / 1e6);
+        if (record) {
+            try {
+                Thread.sleep(2000); // Let the recorder write its last events
+            } catch (InterruptedException ignored) {
+            }
+        }
+        System.exit(0); // Writer and recorder pools keep running otherwise
+    }
+
+    /**
+     * Plays synthetic games back to back with a warm reset between them, sampling the heap after a collection and the
+     * number of threads every tenth of the run. The first game warms the server up and gives the baseline.
+     * @param games The number of games.
+     * @param players The number of players, connected for the whole run.
+     * @param questions The number of questions of each game.
+     * @param console The stream to report to.
+     * @return True if every game ended and neither the heap nor the threads kept growing.
+     */
+    public static boolean soak(int games, int players, int questions, PrintStream console) {
+        ReplayHarness harness = new ReplayHarness(true);
+        int interval = Math.max(games / 10, 1);
+        long baselineHeap = 0;
+        int baselineThreads = 0;
+        long heap = 0;
+        int threads = 0;
+        console.printf("%6s %10s %10s %8s %8s%n", "Game", "Game ms", "Heap MB", "Threads", "Clients");
+        for (int game = 1; game <= games; game++) {
+            Arrays.fill(harness.counts, 0); // Latencies are not reported here, so they must not grow with the run
+            long start = System.nanoTime();
+            harness.replay(generate(players, questions, game), GameRecorder.discarding());
+            long elapsed = System.nanoTime() - start;
+            if (!Server.isLeaderboardShown() || !Server.getActor().call(() -> Server.newGame(GameRecorder::discarding))) {
+                console.println("Game " + game + " did not reach the leaderboard.");
+                return false;
+            }
+            if (game == 1 || game % interval == 0 || game == games) {
+                heap = usedHeapAfterCollection();
+                threads = Thread.activeCount();
+                if (game == 1) {
+                    baselineHeap = heap;
+                    baselineThreads = threads;
+                }
+                console.printf("%6d %10.1f %10.1f %8d %8d%n", game, elapsed / 1e6, heap / 1048576.0, threads, harness.handlers.size());
+            }
+        }
+        long heapGrowth = heap - baselineHeap;
+        boolean stable = heapGrowth < Math.max(baselineHeap / 10, 4L << 20) && threads <= baselineThreads;
+        console.printf("Heap growth since game 1: %.1f MB, thread growth: %d. %s%n", heapGrowth / 1048576.0, threads - baselineThreads,
+                stable ? "No leak detected." : "State is leaking from game to game.");
+        return stable;
+    }
+
+    /**
+     * Measures the used heap once the writers are idle and a collection has run.
+     * @return The used heap in bytes.
+     */
+    private static long usedHeapAfterCollection() {
+        Runtime runtime = Runtime.getRuntime();
+        try {
+            Thread.sleep(200); // Let the writer pool drain the outbound queues
+        } catch (InterruptedException ignored) {
+        }
+        System.gc();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Generates a game: every player joins, answers every question with a random option and response time, and finishes.
+     * @param players The number of players.
+     * @param questions The number of questions.
+     * @param seed The seed of the game and of the generated answers.
+     * @return The events, in the format of a recorded game.
+     */
+    public static List<GameRecordReader.Event> generate(int players, int questions, long seed) {
+        Random random = new Random(seed);
+        List<GameRecordReader.Event> events = new ArrayList<>();
+        long time = 0;
+        for (int i = 0; i < players; i++) {
+            time += random.nextInt(5);
+            events.add(new GameRecordReader.Event(GameRecorder.JOIN, time, "player" + i, new long[0], null));
+        }
+        long timerMillis = 15000;
+        long[] start = new long[4 + questions];
+        String[] texts = new String[questions];
+        start[0] = seed;
+        start[1] = timerMillis;
+        start[2] = GameRecorder.FLAG_SHUFFLE_QUESTIONS | GameRecorder.FLAG_SHUFFLE_ANSWERS;
+        start[3] = questions;
+        for (int q = 0; q < questions; q++) {
+            texts[q] = "Question " + (q + 1);
+            start[4 + q] = random.nextInt(TextQuestionBank.OPTION_COUNT);
+        }
+        time += 1000;
+        events.add(new GameRecordReader.Event(GameRecorder.START, time, null, start, texts));
+        for (int q = 0; q < questions; q++) {
+            long questionStart = time + q * (timerMillis + 2000);
+            List<GameRecordReader.Event> answers = new ArrayList<>();
+            for (int i = 0; i < players; i++) {
+                long response = random.nextInt((int) timerMillis);
+                int option = random.nextInt(10) == 0 ? -1 : random.nextInt(TextQuestionBank.OPTION_COUNT); // One timeout in ten
+                answers.add(new GameRecordReader.Event(GameRecorder.ANSWER, questionStart + response, "player" + i,
+                        new long[]{q, -1, option, 0, response, 0}, null));
+            }
+            answers.sort((a, b) -> Long.compare(a.timeMillis, b.timeMillis));
+            events.addAll(answers);
+        }
+        time += questions * (timerMillis + 2000);
+        for (int i = 0; i < players; i++) {
+            events.add(new GameRecordReader.Event(GameRecorder.FINISHED, time + i % 100, "player" + i, new long[]{-1}, null));
+        }
+        events.sort((a, b) -> Long.compare(a.timeMillis, b.timeMillis)); // Stable, so the order within a millisecond is kept
+        return events;
+    }
+
+    /**
+     * Replays events against the server logic on the virtual clock.
+     * @param events The events.
+     * @param recorder The recorder the server writes to during the replay.
+     */
+    public void replay(List<GameRecordReader.Event> events, GameRecorder recorder) {
+        ServerClock.setSource(virtualNanos::get);
+        Server.setRecorder(recorder);
+        long base = virtualNanos.get();
+        nextRosterTick = base;
+        try {
+            for (GameRecordReader.Event event : events) {
+                long now = base + TimeUnit.MILLISECONDS.toNanos(event.timeMillis);
+                virtualNanos.set(now);
+                while (now - nextRosterTick >= 0) {
+                    Server.getRoster().onDeadline(nextRosterTick); // The heartbeat wheel is not running, tick the roster here
+                    nextRosterTick += ROSTER_TICK_NANOS;
+                }
+                if (event.type == GameRecorder.QUESTIONS_SENT) {
+                    continue; // Produced by START
+                }
+                long started = System.nanoTime();
+                apply(event, now);
+                record(event.type, System.nanoTime() - started);
+            }
+        } finally {
+            ServerClock.setSource(null);
+        }
+    }
+
+    /**
+     * Feeds one event to the server logic.
+     * @param event The event.
+     * @param now The virtual time of the event.
+     */
+    private void apply(GameRecordReader.Event event, long now) {
+        ClientHandler handler = event.username != null ? handlers.get(event.username) : null;
+        long[] v = event.values;
+        switch (event.type) {
+            case GameRecorder.JOIN:
+                if (handler != null) {
+                    break; // Still connected from the previous game
+                }
+                handler = new ClientHandler(new ReplaySocket(event.username));
+                try {
+                    handler.openOutbound();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                Server.register(handler);
+                if (handler.handleHandshake("USERNAME:" + event.username, now)) {
+                    handlers.put(event.username, handler);
+                    expectedScores.put(event.username, 0);
+                }
+                break;
+            case GameRecorder.START: {
+                List<String[]> questions = new ArrayList<>();
+                for (int i = 0; i < event.texts.length; i++) {
+                    String[] question = new String[1 + TextQuestionBank.OPTION_COUNT];
+                    question[0] = event.texts[i];
+                    for (int option = 0; option < TextQuestionBank.OPTION_COUNT; option++) {
+                        question[1 + option] = "Option " + (char) ('A' + option) + (v[4 + i] == option ? TextQuestionBank.CORRECT_MARKER : "");
+                    }
+                    questions.add(question);
+                }
+                long flags = v[2];
+                GameSession game = new GameSession(questions, v[0], (int) v[1], (flags & GameRecorder.FLAG_SHUFFLE_QUESTIONS) != 0,
+                        (flags & GameRecorder.FLAG_SHUFFLE_ANSWERS) != 0, (flags & GameRecorder.FLAG_NO_BONUS_POINT) != 0);
+                Server.getActor().submit(() -> Server.startGame(game));
+                break;
+            }
+            case GameRecorder.ANSWER: {
+                if (handler == null) {
+                    break;
+                }
+                PlayerOrder order = handler.getPlayer().getOrder();
+                int displayIndex = (int) v[0];
+                int question = order.questionAt(displayIndex);
+                if (!synthetic && question != v[1]) {
+                    orderMismatches++;
+                }
+                int option = v[2] < 0 ? -1 : order.displayedOption(question, (int) v[2]);
+                handler.handleMessage("ANSWER:" + displayIndex + ":" + option + ":" + v[4], now);
+                int expected = synthetic ? handler.getPlayer().getScore() : expectedScores.merge(event.username, (int) v[5], Integer::sum);
+                handler.handleMessage("SCORE:" + expected, now); // Sent by the client with every answer
+                break;
+            }
+            case GameRecorder.FINISHED:
+                if (handler != null) {
+                    handler.handleMessage("END", now);
+                    if (!synthetic && handler.getPlayer().getScore() != v[0]) {
+                        scoreMismatches++;
+                    }
+                }
+                break;
+            case GameRecorder.KICK:
+                Server.getActor().submit(() -> Server.kickPlayer(event.username));
+                break;
+            case GameRecorder.DISCONNECT:
+                if (handler != null) {
+                    handler.disconnectPlayer();
+                    handler.closeConnection();
+                    Server.removeClient(handler);
+                    handlers.remove(event.username);
+                }
+                break;
+            case GameRecorder.FINISH_ALL:
+                Server.getActor().submit(Server::finishGame);
+                break;
+            case GameRecorder.LEADERBOARD:
+                if (!Server.isLeaderboardShown()) {
+                    leaderboardMismatches++;
+                }
+                break;
+        }
+    }
+
+    /**
+     * Records the processing time of an event.
+     * @param type The type of the event.
+     * @param nanos The processing time.
+     */
+    private void record(int type, long nanos) {
+        if (counts[type] == latencies[type].length) {
+            latencies[type] = Arrays.copyOf(latencies[type], counts[type] * 2);
+        }
+        latencies[type][counts[type]++] = nanos;
+    }
+
+    /**
+     * Waits until the writer pool has written every message queued for the players.
+     * @return The time waited in nanoseconds.
+     */
+    private long awaitOutboundIdle() {
+        long start = System.nanoTime();
+        for (ClientHandler handler : handlers.values()) {
+            Outbound outbound = handler.getOutbound();
+            while (outbound != null && !outbound.isIdle()) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return System.nanoTime() - start;
+                }
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Prints the results of the replay.
+     * @param events The replayed events.
+     * @param elapsedNanos The wall-clock time of the replay.
+     */
+    private void report(List<GameRecordReader.Event> events, long elapsedNanos) {
+        int processed = 0;
+        for (int count : counts) {
+            processed += count;
+        }
+        long virtualMillis = events.isEmpty() ? 0 : events.get(events.size() - 1).timeMillis;
+        double elapsedMillis = elapsedNanos / 1e6;
+        System.out.printf("Replayed %d events for %d players in %.1f ms (%.0f events/s), %.1f s of game time (%.0fx).%n",
+                processed, handlers.size(), elapsedMillis, processed / (elapsedNanos / 1e9), virtualMillis / 1000.0,
+                elapsedMillis > 0 ? virtualMillis / elapsedMillis : 0);
+        System.out.printf("%-12s %8s %10s %10s %10s %10s%n", "Event", "Count", "Mean us", "p50 us", "p99 us", "Max us");
+        for (int type = 1; type < TYPE_NAMES.length; type++) {
+            if (counts[type] == 0) {
+                continue;
+            }
+            long[] sorted = Arrays.copyOf(latencies[type], counts[type]);
+            Arrays.sort(sorted);
+            long total = 0;
+            for (long nanos : sorted) {
+                total += nanos;
+            }
+            System.out.printf("%-12s %8d %10.1f %10.1f %10.1f %10.1f%n", TYPE_NAMES[type], counts[type], total / 1e3 / counts[type],
+                    sorted[(int) (counts[type] * 0.50)] / 1e3, sorted[Math.min(counts[type] - 1, (int) (counts[type] * 0.99))] / 1e3,
+                    sorted[counts[type] - 1] / 1e3);
+        }
+        if (!synthetic) {
+            System.out.println("Score mismatches: " + scoreMismatches + ", order mismatches: " + orderMismatches
+                    + ", leaderboard mismatches: " + leaderboardMismatches);
+        }
+        System.out.println("Leaderboard shown: " + (Server.isLeaderboardShown() ? "yes" : "no"));
+        System.out.print(ServerMetrics.report());
+        System.out.print(TrafficStats.report());
+    }
+}
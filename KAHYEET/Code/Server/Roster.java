@@ -0,0 +1,104 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Roster class keeps the list of players in the lobby and tells clients how it changes.
+ * Joins and leaves are collected and sent at most once per debounce window as WAITING_JOIN and WAITING_LEAVE
+ * deltas, a player who joins and leaves within the same window is never announced, and the full list is only
+ * sent to new players and, after changes, as a periodic UPDATE_WAITING_LIST snapshot that repairs any
+ * delta a slow client skipped. Runs as a task on the heartbeat wheel.
+ */
+public class Roster implements HeartbeatWheel.Task {
+    private static final long DEBOUNCE_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final long SNAPSHOT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final Set<String> members = new LinkedHashSet<>(); // Guarded by this, in join order
+    private final ConcurrentLinkedQueue<String> events = new ConcurrentLinkedQueue<>(); // "+name" or "-name"
+    private final Map<String, Boolean> changes = new LinkedHashMap<>(); // Reused on the wheel thread, true for a join
+    private boolean changedSinceSnapshot = false;
+    private long nextSnapshot; // Deadline of the snapshot that follows the first unsent change
+
+    /**
+     * Adds a player to the lobby.
+     * @param username The username of the player.
+     * @return The snapshot to send to the player, which includes the player.
+     */
+    public String join(String username) {
+        synchronized (this) {
+            members.add(username);
+            events.add("+" + username);
+            return snapshotMessage();
+        }
+    }
+
+    /**
+     * Removes a player from the lobby.
+     * @param username The username of the player.
+     */
+    public void leave(String username) {
+        synchronized (this) {
+            if (members.remove(username)) {
+                events.add("-" + username);
+            }
+        }
+    }
+
+    /**
+     * Builds the full list of players.
+     * @return The UPDATE_WAITING_LIST message.
+     */
+    public synchronized String snapshotMessage() {
+        return "UPDATE_WAITING_LIST:" + String.join(",", members);
+    }
+
+    /**
+     * Sends the changes collected since the last call and, from time to time, a snapshot.
+     * Nothing is sent while a game is running.
+     * @param now The current value of System.nanoTime().
+     * @return The next deadline.
+     */
+    @Override
+    public long onDeadline(long now) {
+        String event;
+        while ((event = events.poll()) != null) {
+            String username = event.substring(1);
+            boolean join = event.charAt(0) == '+';
+            Boolean previous = changes.remove(username);
+            if (previous == null || previous == join) {
+                changes.put(username, join); // A join followed by a leave in the same window cancels out
+            }
+        }
+        if (!changes.isEmpty()) {
+            List<String> joined = new ArrayList<>();
+            List<String> left = new ArrayList<>();
+            for (Map.Entry<String, Boolean> change : changes.entrySet()) {
+                (change.getValue() ? joined : left).add(change.getKey());
+            }
+            changes.clear();
+            if (!Server.isGameStarted()) {
+                // Deltas may be skipped by a slow client, the next snapshot repairs its list
+                if (!left.isEmpty()) {
+                    Server.broadcast("WAITING_LEAVE:" + String.join(",", left), false);
+                }
+                if (!joined.isEmpty()) {
+                    Server.broadcast("WAITING_JOIN:" + String.join(",", joined), false);
+                }
+            }
+            if (!changedSinceSnapshot) {
+                changedSinceSnapshot = true;
+                nextSnapshot = now + SNAPSHOT_NANOS;
+            }
+        }
+        if (changedSinceSnapshot && now - nextSnapshot >= 0 && !Server.isGameStarted()) {
+            Server.broadcast(snapshotMessage(), false);
+            changedSinceSnapshot = false;
+        }
+        return now + DEBOUNCE_NANOS;
+    }
+}
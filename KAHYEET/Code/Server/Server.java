@@ -2,9 +2,14 @@ import java.io.*;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 import javax.swing.*;
 import java.awt.*;
@@ -12,24 +17,46 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
 public class Server {
+    /**
+     * Phase of the game lifecycle: players gather in the LOBBY, answer while RUNNING and see the RESULTS
+     * until the host starts a new game, which brings every connected player back to the lobby.
+     */
+    public enum Phase { LOBBY, RUNNING, RESULTS }
+
     private static int PORT = 12345;
-    private static List<ClientHandler> clients = new ArrayList<>();
+    private static List<ClientHandler> clients = new CopyOnWriteArrayList<>(); // Iterated by many threads, changed only on connect and disconnect
     private static JLabel completedLabel; // Label to show completed clients count
     private static JButton startButton;
     private static JButton finishButton;
     private static JButton leaderButton;
-    private static int completedClients = 0; // Counter for completed clients
-    private static int totalClients = 0; // Counter for total clients
+    private static JButton newGameButton;
+    private static boolean newGamePending = false; // A NEW GAME command is queued on the actor, used by the event dispatch thread only
+    // State of the game, changed only by commands on the game actor; volatile fields are also read by the UI
+    private static final GameActor actor = new GameActor();
+    private static volatile int completedClients = 0; // Counter for completed clients
+    private static volatile int totalClients = 0; // Counter for total clients
+    private static final AtomicBoolean rosterChanged = new AtomicBoolean(); // The kick list must be rebuilt
+    private static final AtomicBoolean scoresChanged = new AtomicBoolean(); // The leaderboard window must be reloaded
+    private static final int ADMIN_REFRESH_INTERVAL = 250; // Milliseconds between two refreshes of the admin UI
     private static boolean shuffleQuestions = false;
     private static boolean shuffleAnswers = false;
     private static String ipAddress;
-    private static boolean isGameStarted = false;
-    private static boolean isShowLeaderboard = false;
-    private static boolean dontShowTrueAnswers = false;
+    private static volatile Phase phase = Phase.LOBBY;
+    private static volatile boolean dontShowTrueAnswers = false; // Also read by the spectator feed
     private static boolean noBonusPoint = false;
     private static JDialog kickFrame;
     private static LeaderServer leaderServer;
+    private static final QuestionBankWatcher questionBank = new QuestionBankWatcher(new File("questions.txt"), new File("questions.bank")); // Reloaded in the background when the files change
+    private static StatsWindow statsWindow; // Live answer statistics of the current game
     private static Set<String> kickedPlayers = new HashSet<>();
+    private static int questionsPerGame = 0; // Number of questions drawn for a game, 0 for the whole bank
+    private static volatile GameSession currentGame; // Game being played, null before the first start
+    private static GameRecorder recorder; // Event log of the current game, written by the game actor
+    private static Roster roster = new Roster(); // Players in the lobby, announced to clients as deltas
+    private static final TeamBoard teams = new TeamBoard(); // Standings of the teams, owned by the game actor
+    private static final ProfileStore profiles = ProfileStore.open(new File(ProfileStore.FILE_NAME)); // All-time statistics, owned by the game actor
+    private static final SpectatorFeed spectatorFeed = new SpectatorFeed(); // Read-only connections, not counted as players
+    private static HeartbeatWheel heartbeatWheel = new HeartbeatWheel(250, 64); // Liveness deadlines of all connections
 
     public static void main(String[] args) {
 
@@ -72,14 +99,21 @@ public class Server {
 
         try (ServerSocket serverSocket = new ServerSocket(PORT)) {
             ipAddress = java.net.InetAddress.getLocalHost().getHostAddress();
+            actor.start();
             showServerUI();
+            questionBank.start();
 
             System.out.println("Server IP address: " + ipAddress);
             System.out.println("Server running on port " + PORT);
+            recorder = GameRecorder.create();
+            heartbeatWheel.start();
+            heartbeatWheel.schedule(roster, System.nanoTime());
+            heartbeatWheel.schedule(spectatorFeed, System.nanoTime());
             while (true) {
                 Socket clientSocket = serverSocket.accept();
                 ClientHandler clientHandler = new ClientHandler(clientSocket);
-                clients.add(clientHandler);
+                register(clientHandler);
+                heartbeatWheel.schedule(clientHandler, clientHandler.getFirstDeadline());
                 new Thread(clientHandler).start();
             }
         } catch (IOException e) {
@@ -111,14 +145,16 @@ public class Server {
         buttonPanel.add(finishButton);
     
         JPanel completedPanel = new JPanel(new FlowLayout(FlowLayout.CENTER)); // Panel to hold completedLabel
-        completedLabel = new JLabel("Completed: 0/" + totalClients);
+        completedLabel = new JLabel("Completed: 0/0");
         completedPanel.add(completedLabel);
 
         JPanel buttonPanel_2 = new JPanel(new FlowLayout(FlowLayout.CENTER)); // Panel to hold start and finish buttons
         JButton questionButton = new JButton("QUESTION");
         leaderButton = new JButton("LEADERBOARD");
+        newGameButton = new JButton("NEW GAME");
         buttonPanel_2.add(questionButton);
         buttonPanel_2.add(leaderButton);
+        buttonPanel_2.add(newGameButton);
 
         JPanel timerPanel = new JPanel(new BorderLayout()); // Panel to hold timer slider
         JLabel timerLabel = new JLabel("Timer: 15 s");
@@ -131,6 +167,12 @@ public class Server {
         timerPanel.add(timerLabel, BorderLayout.WEST);
         timerPanel.add(timerSlider, BorderLayout.CENTER);
     
+        JPanel questionsPanel = new JPanel(new FlowLayout(FlowLayout.CENTER)); // Panel to hold the number of questions per game
+        JSpinner questionsSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 100000, 1));
+        questionsSpinner.addChangeListener(e -> questionsPerGame = (Integer) questionsSpinner.getValue());
+        questionsPanel.add(new JLabel("Questions per game (0 = all):"));
+        questionsPanel.add(questionsSpinner);
+
         JPanel checkPanel = new JPanel(new GridLayout(2, 2));
 
         JPanel shuffleQuestionsPanel = new JPanel(new FlowLayout(FlowLayout.CENTER)); // Panel to hold shuffleQuestionsCheckBox
@@ -156,31 +198,23 @@ public class Server {
 
         JPanel buttonPanel_3 = new JPanel(new FlowLayout(FlowLayout.CENTER));
         JButton kickPlayerButton = new JButton("KICK PLAYER");
+        JButton metricsButton = new JButton("METRICS");
+        JButton statsButton = new JButton("STATS");
+        JButton profilesButton = new JButton("PROFILES");
         buttonPanel_3.add(kickPlayerButton);
+        buttonPanel_3.add(metricsButton);
+        buttonPanel_3.add(statsButton);
+        buttonPanel_3.add(profilesButton);
     
         startButton.setEnabled(false);
         startButton.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
-                isGameStarted = true;
                 int timerValue = timerSlider.getValue();
-                broadcast("TIMER:" + timerValue);
-                broadcast("START_GAME");
-                if (shuffleQuestions) {
-                    broadcast("SHUFFLE_QUESTIONS");
-                }
-                if (shuffleAnswers) {
-                    broadcast("SHUFFLE_ANSWERS");
-                }
-                if (dontShowTrueAnswers) {
-                    broadcast("DONT_SHOW_TRUE_ANSWERS");
-                }
-                if (noBonusPoint) {
-                    broadcast("NO_BONUS_POINT");
-                }
-                for (ClientHandler client : clients) {
-                    client.sendQuestionsToClient();
-                }
-                Player.addSeparatorLine();
+                // Every order is derived from the seed of the game, set kahyeet.seed to replay a game
+                long seed = Long.getLong("kahyeet.seed", new Random().nextLong());
+                System.out.println("Game seed: " + seed);
+                GameSession game = new GameSession(loadGameQuestions(seed), seed, timerValue * 1000, shuffleQuestions, shuffleAnswers, noBonusPoint);
+                actor.submit(() -> startGame(game));
                 startButton.setEnabled(false);
                 finishButton.setEnabled(true);
                 timerSlider.setEnabled(false);
@@ -189,6 +223,7 @@ public class Server {
                 shuffleAnswersCheckBox.setEnabled(false);
                 dontShowTrueAnswersCheckBox.setEnabled(false);
                 noBonusPointCheckBox.setEnabled(false);
+                questionsSpinner.setEnabled(false);
                 startButton.setBackground(Color.GRAY);
             }
         });
@@ -196,12 +231,40 @@ public class Server {
         finishButton.setEnabled(false);
         finishButton.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
-                broadcast("FINISH");
+                actor.submit(() -> finishGame());
                 finishButton.setEnabled(false);
                 finishButton.setBackground(Color.GRAY);
             }
         });
 
+        newGameButton.setEnabled(false);
+        newGameButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                newGameButton.setEnabled(false);
+                newGamePending = true; // Keeps the refresh from enabling the button before the command has run
+                // Queued behind the game commands, the admin window is updated once the lobby is open
+                actor.submit(() -> {
+                    boolean opened = newGame(GameRecorder::create);
+                    SwingUtilities.invokeLater(() -> {
+                        newGamePending = false;
+                        if (opened) {
+                            finishButton.setBackground(new Color(173, 216, 230));
+                            startButton.setBackground(new Color(173, 216, 230));
+                            timerSlider.setEnabled(true);
+                            shuffleQuestionsCheckBox.setEnabled(true);
+                            shuffleAnswersCheckBox.setEnabled(true);
+                            dontShowTrueAnswersCheckBox.setEnabled(true);
+                            noBonusPointCheckBox.setEnabled(true);
+                            questionsSpinner.setEnabled(true);
+                            if (leaderServer != null && leaderServer.isWindowOpen()) {
+                                leaderServer.updateLeaderboard();
+                            }
+                        }
+                    });
+                });
+            }
+        });
+
         leaderButton.setEnabled(false);
         leaderButton.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
@@ -255,6 +318,37 @@ public class Server {
 
         kickPlayerButton.addActionListener(e -> openKickPlayerFrame(frame));
 
+        metricsButton.addActionListener(e -> System.out.print(metricsReport()));
+
+        // Prints the all-time statistics of a player, or the all-time leaderboard
+        profilesButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                String username = JOptionPane.showInputDialog(frame, "Username (empty for the all-time leaderboard):", "Profiles", JOptionPane.QUESTION_MESSAGE);
+                if (username != null) {
+                    actor.submit(() -> {
+                        String report = profiles.report(username.trim(), ProfileStore.RANKED);
+                        SwingUtilities.invokeLater(() -> System.out.print(report));
+                    });
+                }
+            }
+        });
+
+        statsButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                GameSession game = currentGame;
+                if (game == null) {
+                    JOptionPane.showMessageDialog(null, "No game has been started yet.", "Error", JOptionPane.ERROR_MESSAGE);
+                } else if (statsWindow == null || !statsWindow.isDisplayable() || statsWindow.getStats() != game.getStats()) {
+                    if (statsWindow != null) {
+                        statsWindow.dispose();
+                    }
+                    statsWindow = new StatsWindow(game.getStats());
+                } else {
+                    statsWindow.toFront();
+                }
+            }
+        });
+
         JTextArea terminalOutput = new JTextArea(10, 30);
         terminalOutput.setEditable(false);
         terminalOutput.setWrapStyleWord(true);
@@ -279,27 +373,180 @@ public class Server {
         controlpanel.add(completedPanel);
         controlpanel.add(timerPanel);
         controlpanel.add(checkPanel);
-        controlpanel.add(Box.createVerticalStrut(20));
+        controlpanel.add(questionsPanel);
         controlpanel.add(buttonPanel_3);
         
         frame.add(controlpanel);
         frame.add(scrollPane);
         frame.setVisible(true);
+
+        // Network threads only update counters and flags; the UI catches up at a capped rate
+        new Timer(ADMIN_REFRESH_INTERVAL, e -> refreshAdminUI()).start();
+    }
+
+    /**
+     * Starts a game: the settings and the questions of every player are sent to each client as a single batch.
+     * Runs on the game actor.
+     * @param game The game to start.
+     */
+    static void startGame(GameSession game) {
+        if (phase != Phase.LOBBY) {
+            return;
+        }
+        phase = Phase.RUNNING;
+        queueBroadcast("TIMER:" + game.getTimerMillis() / 1000);
+        queueBroadcast("START_GAME");
+        if (dontShowTrueAnswers) {
+            queueBroadcast("DONT_SHOW_TRUE_ANSWERS");
+        }
+        if (game.isNoBonusPoint()) {
+            queueBroadcast("NO_BONUS_POINT");
+        }
+        currentGame = game;
+        recorder.start(game, (game.isShuffleQuestions() ? GameRecorder.FLAG_SHUFFLE_QUESTIONS : 0)
+                | (game.isShuffleAnswers() ? GameRecorder.FLAG_SHUFFLE_ANSWERS : 0)
+                | (dontShowTrueAnswers ? GameRecorder.FLAG_DONT_SHOW_TRUE_ANSWERS : 0)
+                | (game.isNoBonusPoint() ? GameRecorder.FLAG_NO_BONUS_POINT : 0));
+        for (ClientHandler client : clients) {
+            if (client.getPlayer() != null) { // Handshake pending, its join is refused now that the game runs
+                client.sendQuestionsToClient(game);
+            }
+        }
+        Player.addSeparatorLine();
+    }
+
+    /**
+     * Ends the game for all players, who then send their results. Runs on the game actor.
+     */
+    static void finishGame() {
+        broadcast("FINISH");
+        recorder.finishAll();
+    }
+
+    /**
+     * Adds the handler of a new connection to the clients.
+     * @param clientHandler The handler.
+     */
+    static void register(ClientHandler clientHandler) {
+        clients.add(clientHandler);
     }
 
     /**
-     * Updates the count of completed clients.
+     * Replaces the recorder of the current game.
+     * @param gameRecorder The recorder.
      */
-    public static void updateCompletedClientsCount() {
-        if (!isGameStarted) {
-            startButton.setEnabled(totalClients > 0);
+    static void setRecorder(GameRecorder gameRecorder) {
+        recorder = gameRecorder;
+    }
+
+    /**
+     * Goes back to the lobby after a game, keeping the players connected, so the next game needs no restart.
+     * Scores, orders and counters are reset, and clients return to their waiting room. Runs on the game actor.
+     * @param nextRecorder Creates the recorder of the next game, only once the game is known to be in its results,
+     *                     so a rejected call opens no log.
+     * @return False if the game is not in its results.
+     */
+    static boolean newGame(Supplier<GameRecorder> nextRecorder) {
+        if (phase != Phase.RESULTS) {
+            return false;
         }
-        completedClients = (int) clients.stream().filter(client -> client.getPlayer() != null && client.getPlayer().isFinished()).count();
-        completedLabel.setText("Completed: " + completedClients + "/" + totalClients);
+        phase = Phase.LOBBY;
+        currentGame = null;
+        recorder = nextRecorder.get();
+        TrafficStats.startGame(); // The lobby traffic counts toward the next game
+        for (ClientHandler client : clients) {
+            Player player = client.getPlayer();
+            if (player != null) {
+                player.reset();
+                recorder.join(player.getUsername());
+            }
+        }
+        completedClients = 0;
+        teams.reset(getPlayers());
+        queueBroadcast("NEW_GAME");
+        broadcast(roster.snapshotMessage());
+        System.out.println("Back to the lobby.");
+        return true;
+    }
+
+    /**
+     * Gets the phase of the game lifecycle.
+     * @return The phase.
+     */
+    public static Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * Gets the actor that owns the state of the game.
+     * @return The actor.
+     */
+    public static GameActor getActor() {
+        return actor;
+    }
+
+    /**
+     * Checks if the leaderboard has been shown, which ends the game.
+     * @return True if the leaderboard has been shown, false otherwise.
+     */
+    static boolean isLeaderboardShown() {
+        return phase == Phase.RESULTS;
     }
 
     /**
-     * Checks if a username is already taken.
+     * Applies the latest state of the game to the admin UI. Runs on the event dispatch thread.
+     */
+    private static void refreshAdminUI() {
+        int completed = completedClients;
+        int total = totalClients;
+        int spectators = spectatorFeed.getCount();
+        String completedText = "Completed: " + completed + "/" + total + (spectators > 0 ? "   Spectators: " + spectators : "");
+        if (!completedText.equals(completedLabel.getText())) {
+            completedLabel.setText(completedText);
+        }
+        Phase current = phase;
+        startButton.setEnabled(current == Phase.LOBBY && total > 0);
+        if (current == Phase.RESULTS && finishButton.isEnabled()) {
+            finishButton.setEnabled(false);
+        }
+        newGameButton.setEnabled(current == Phase.RESULTS && !newGamePending);
+        if (rosterChanged.getAndSet(false) && kickFrame != null && kickFrame.isVisible()) {
+            updatePlayerList(kickFrame);
+        }
+        if (scoresChanged.getAndSet(false) && leaderServer != null && leaderServer.isWindowOpen()) {
+            leaderServer.updateLeaderboard();
+        }
+    }
+
+    /**
+     * Loads the questions of a game. The compiled questions.bank is memory-mapped when it is newer than
+     * questions.txt, so only the drawn questions are read; otherwise questions.txt is parsed.
+     * @param seed The seed of the game, used to draw the questions.
+     * @return The questions, each as its lines in the questions.txt format.
+     */
+    private static List<String[]> loadGameQuestions(long seed) {
+        List<String[]> questions = new ArrayList<>();
+        QuestionBank bank = questionBank.getBank(); // Read once, a reload during the draw does not mix two versions
+        if (bank == null) {
+            System.out.println("No questions loaded.");
+            return questions;
+        }
+        for (int index : bank.sample(questionsPerGame, new Random(seed))) {
+            questions.add(bank.getQuestion(index));
+        }
+        return questions;
+    }
+
+    /**
+     * Gets the game being played.
+     * @return The game, or null if no game was started.
+     */
+    public static GameSession getCurrentGame() {
+        return currentGame;
+    }
+
+    /**
+     * Checks if a username is already taken. Runs on the game actor, so two players cannot take the same name.
      * @param username The username to check.
      * @return True if the username is taken, false otherwise.
      */
@@ -321,49 +568,144 @@ public class Server {
     }
 
     /**
-     * Updates the list of waiting players.
+     * Removes a client handler whose connection has been closed.
+     * @param clientHandler The handler to remove.
+     */
+    public static void removeClient(ClientHandler clientHandler) {
+        if (!clients.remove(clientHandler) && spectatorFeed.remove(clientHandler)) {
+            System.out.println("A spectator left.");
+        }
+    }
+
+    /**
+     * Turns a new connection into a spectator, which receives the spectator feed instead of the messages of the game.
+     * @param clientHandler The handler of the connection.
      */
-    public static void updateWaitingPlayers() {
-        StringBuilder usernames = new StringBuilder("UPDATE_WAITING_LIST:");
+    public static void addSpectator(ClientHandler clientHandler) {
+        clients.remove(clientHandler);
+        spectatorFeed.add(clientHandler);
+        System.out.println("A spectator joined.");
+    }
+
+    /**
+     * Gets the players of the connected clients. Runs on the game actor, which owns the scores.
+     * @return The players.
+     */
+    static List<Player> getPlayers() {
+        List<Player> players = new ArrayList<>(clients.size());
         for (ClientHandler client : clients) {
             if (client.getPlayer() != null) {
-                usernames.append(client.getPlayer().getUsername()).append(",");
+                players.add(client.getPlayer());
             }
         }
-        broadcast(usernames.toString());
+        return players;
+    }
+
+    /**
+     * Gets the number of players in the game.
+     * @return The number of players.
+     */
+    public static int getTotalClients() {
+        return totalClients;
+    }
+
+    /**
+     * Gets the number of players who answered all the questions.
+     * @return The number of players.
+     */
+    public static int getCompletedClients() {
+        return completedClients;
     }
 
     /**
-     * Checks if all players have finished and updates the leaderboard.
+     * Checks if the true answers are hidden from players during the game.
+     * @return True if they are hidden.
+     */
+    public static boolean isDontShowTrueAnswers() {
+        return dontShowTrueAnswers;
+    }
+
+    /**
+     * Gets the recorder of the current game.
+     * @return The recorder.
+     */
+    public static GameRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Gets the standings of the teams. Used by the game actor only.
+     * @return The team board.
+     */
+    public static TeamBoard getTeams() {
+        return teams;
+    }
+
+    /**
+     * Gets the roster of the lobby.
+     * @return The roster.
+     */
+    public static Roster getRoster() {
+        return roster;
+    }
+
+    /**
+     * Checks if all players have finished and shows the leaderboard once they have. Runs on the game actor.
      */
     public static void checkAllPlayersFinished() {
-        updateCompletedClientsCount();
-        if (leaderServer != null && leaderServer.isWindowOpen()) {
-            leaderServer.updateLeaderboard();
-        }
-        if (completedClients == totalClients && totalClients != 0 && !isShowLeaderboard) {
-            finishButton.setEnabled(false);
+        scoresChanged.set(true);
+        if (totalClients != 0 && completedClients >= totalClients && phase == Phase.RUNNING) {
+            phase = Phase.RESULTS;
             broadcast("SHOW_LEADERBOARD");
-            isShowLeaderboard = true;
+            recorder.leaderboard();
+            recorder.close(); // The game is over
+            profiles.flush(); // The players' all-time statistics, updated as they finished
+            List<String> scoreData = ClientHandler.readLatestScoreData(); // Read once, not once per client
+            scoreData.addAll(teams.leaderboardMessages());
+            for (String teamLine : teams.leaderboardMessages()) {
+                System.out.println(teamLine.substring(10).replace('\t', ' '));
+            }
             for (ClientHandler client : clients) {
-                client.sendLatestScoreDataToClient();
+                client.sendScoreDataToClient(scoreData);
             }
         }
     }
 
     /**
-     * Adds or removes a client.
-     * @param add True to add a client, false to remove.
+     * Gets the all-time statistics of the players.
+     * @return The profile store, used by the game actor only.
      */
-    public static void addClient(boolean add) {
-        if (add) totalClients++;
-        else {
-            totalClients--;
-            checkAllPlayersFinished();
-        }
-        if (kickFrame != null && kickFrame.isVisible()) {
-            SwingUtilities.invokeLater(() -> updatePlayerList(kickFrame));
+    public static ProfileStore getProfiles() {
+        return profiles;
+    }
+
+    /**
+     * Counts a player who joined the game. Runs on the game actor.
+     */
+    public static void addClient() {
+        totalClients++; // Single writer, so the increment of the volatile is safe
+        rosterChanged.set(true);
+    }
+
+    /**
+     * Counts a player who answered all the questions. Runs on the game actor.
+     */
+    public static void markClientCompleted() {
+        completedClients++;
+        checkAllPlayersFinished();
+    }
+
+    /**
+     * Stops counting a player who left the game. Runs on the game actor.
+     * @param finished True if the player had answered all the questions.
+     */
+    public static void clientLeft(boolean finished) {
+        if (finished) {
+            completedClients--;
         }
+        totalClients--;
+        rosterChanged.set(true);
+        checkAllPlayersFinished();
     }
 
     /**
@@ -371,25 +713,74 @@ public class Server {
      * @param message The message to broadcast.
      */
     public static void broadcast(String message) {
+        broadcast(message, true);
+    }
+
+    /**
+     * Broadcasts a message to all clients.
+     * @param message The message to broadcast.
+     * @param essential False if slow clients may skip the message.
+     */
+    public static void broadcast(String message, boolean essential) {
+        System.out.println("Message 2 Player: " + message);
+        for (ClientHandler client : clients) {
+            if (essential) {
+                client.queueMessageToClient(message);
+            } else {
+                client.queueNonEssentialMessageToClient(message);
+            }
+        }
+        for (ClientHandler client : clients) {
+            client.flush(); // End of broadcast
+        }
+    }
+
+    /**
+     * Queues a message for all clients without flushing, as part of a larger batch.
+     * @param message The message to queue.
+     */
+    private static void queueBroadcast(String message) {
         System.out.println("Message 2 Player: " + message);
         for (ClientHandler client : clients) {
-            client.sendMessageToClient(message);
+            client.queueMessageToClient(message);
         }
     }
 
+    /**
+     * Builds the metrics report, including the backlog of every connection.
+     * @return The report.
+     */
+    public static String metricsReport() {
+        StringBuilder report = new StringBuilder(ServerMetrics.report());
+        report.append("Spectators: ").append(spectatorFeed.getCount()).append('\n');
+        report.append(TrafficStats.report());
+        for (ClientHandler client : clients) {
+            Outbound outbound = client.getOutbound();
+            if (client.getPlayer() != null && outbound != null) {
+                report.append("  ").append(client.getPlayer().getUsername())
+                      .append(": pending ").append(outbound.getPendingBytes()).append(" B")
+                      .append(", last write ").append(outbound.getLastWriteLatencyNanos() / 1000).append(" us")
+                      .append(", max write ").append(outbound.getMaxWriteLatencyNanos() / 1000).append(" us")
+                      .append(", in ").append(client.getBytesReceived()).append(" B")
+                      .append(", out ").append(outbound.getBytesWritten()).append(" B\n");
+            }
+        }
+        return report.toString();
+    }
+
     /**
      * Checks if the game has started.
      * @return True if the game has started, false otherwise.
      */
     public static boolean isGameStarted() {
-        return isGameStarted;
+        return phase != Phase.LOBBY;
     }
 
     /**
-     * Kicks a player by username.
+     * Kicks a player by username. Runs on the game actor.
      * @param username The username of the player to kick.
      */
-    private static void kickPlayer(String username) {
+    static void kickPlayer(String username) {
         ClientHandler clientToKick = null;
         for (ClientHandler client : clients) {
             if (client.getPlayer() != null && client.getPlayer().getUsername().equals(username)) {
@@ -399,12 +790,21 @@ public class Server {
         }
         if (clientToKick != null) {
             kickedPlayers.add(username);
+            recorder.kick(username);
             clientToKick.sendMessageToClient("KICK");
         }
     }
 
     /**
-     * Checks if a player has been kicked.
+     * Records that a player was kicked, so the player cannot reconnect. Runs on the game actor.
+     * @param username The username of the player.
+     */
+    public static void addKickedPlayer(String username) {
+        kickedPlayers.add(username);
+    }
+
+    /**
+     * Checks if a player has been kicked. Runs on the game actor.
      * @param username The username to check.
      * @return True if the player has been kicked, false otherwise.
      */
@@ -426,6 +826,29 @@ public class Server {
         kickFrame.setVisible(true);
     }
 
+    /**
+     * Asks the host which kicked player may join again.
+     * @param kickFrame The kick player frame.
+     * @param kicked The usernames of the kicked players.
+     */
+    private static void showPardonDialog(JDialog kickFrame, String[] kicked) {
+        if (kicked.length == 0) {
+            JOptionPane.showMessageDialog(kickFrame, "No player has been kicked.");
+            return;
+        }
+        Arrays.sort(kicked);
+        Object selected = JOptionPane.showInputDialog(kickFrame, "Allow this player to join again:", "Pardon",
+                JOptionPane.QUESTION_MESSAGE, null, kicked, kicked[0]);
+        if (selected != null) {
+            String username = selected.toString();
+            actor.submit(() -> {
+                if (kickedPlayers.remove(username)) {
+                    System.out.println(username + " may join again.");
+                }
+            });
+        }
+    }
+
     /**
      * Updates the player list in the kick player frame.
      * @param kickFrame The kick player frame.
@@ -460,12 +883,20 @@ public class Server {
                         int confirm = JOptionPane.showConfirmDialog(kickFrame, "Are you sure you want to kick " + selectedPlayer + "?",
                                 "Confirm Kick", JOptionPane.YES_NO_OPTION);
                         if (confirm == JOptionPane.YES_OPTION) {
-                            new Thread(() -> kickPlayer(selectedPlayer)).start();
+                            actor.submit(() -> kickPlayer(selectedPlayer));
                         }
                     }
                 }
             });
         }
+        // Kicks last for the life of the server, only the host can let a player back in
+        JButton pardonButton = new JButton("PARDON");
+        pardonButton.addActionListener(e -> actor.submit(() -> {
+            String[] kicked = kickedPlayers.toArray(new String[0]);
+            SwingUtilities.invokeLater(() -> showPardonDialog(kickFrame, kicked));
+        }));
+        playerListPanel.add(pardonButton, BorderLayout.SOUTH);
+
         kickFrame.getContentPane().removeAll();
         kickFrame.add(playerListPanel, BorderLayout.CENTER);
         kickFrame.revalidate();
@@ -0,0 +1,29 @@
+import java.util.function.LongSupplier;
+
+/**
+ * ServerClock class is the monotonic time source of the game logic, in System.nanoTime() units.
+ * It reads the system clock unless a replay installs a virtual clock, so recorded games can be replayed
+ * faster than real time while rate limits, response times and recordings still see the recorded timeline.
+ */
+public class ServerClock {
+    private static volatile LongSupplier source = System::nanoTime;
+
+    private ServerClock() {
+    }
+
+    /**
+     * Gets the current time.
+     * @return The current time in nanoseconds, only meaningful relative to another reading.
+     */
+    public static long nanoTime() {
+        return source.getAsLong();
+    }
+
+    /**
+     * Replaces the time source.
+     * @param clock The new source, or null to use the system clock again.
+     */
+    static void setSource(LongSupplier clock) {
+        source = clock != null ? clock : System::nanoTime;
+    }
+}
@@ -0,0 +1,36 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ServerMetrics class holds the counters exposed by the server.
+ * Counters are striped so that hot paths can update them without contention.
+ */
+public class ServerMetrics {
+    public static final LongAdder framesSent = new LongAdder(); // Messages written to clients
+    public static final LongAdder bytesSent = new LongAdder(); // Bytes written to clients
+    public static final LongAdder framesThrottled = new LongAdder(); // Non-essential messages skipped by throttling
+    public static final LongAdder framesDropped = new LongAdder(); // Non-essential messages dropped by degradation
+    public static final LongAdder slowConsumerEvictions = new LongAdder(); // Connections closed because they could not keep up
+    public static final LongAdder inboundDropped = new LongAdder(); // Client messages dropped by rate limiting
+    public static final LongAdder inboundOverlong = new LongAdder(); // Client lines skipped for exceeding the maximum length
+    public static final LongAdder abuseKicks = new LongAdder(); // Clients kicked for flooding the server
+
+    private ServerMetrics() {
+    }
+
+    /**
+     * Builds a human-readable report of all counters.
+     * @return The report.
+     */
+    public static String report() {
+        StringBuilder report = new StringBuilder();
+        report.append("Frames sent: ").append(framesSent.sum()).append("\n");
+        report.append("Bytes sent: ").append(bytesSent.sum()).append("\n");
+        report.append("Frames throttled: ").append(framesThrottled.sum()).append("\n");
+        report.append("Frames dropped: ").append(framesDropped.sum()).append("\n");
+        report.append("Slow consumer evictions: ").append(slowConsumerEvictions.sum()).append("\n");
+        report.append("Inbound messages dropped: ").append(inboundDropped.sum()).append("\n");
+        report.append("Inbound lines too long: ").append(inboundOverlong.sum()).append("\n");
+        report.append("Abuse kicks: ").append(abuseKicks.sum()).append("\n");
+        return report.toString();
+    }
+}
@@ -0,0 +1,150 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SpectatorFeed class sends spectators an aggregated view of the game at a throttled rate: the state of the game,
+ * the question answered last with its answer distribution, the top players and the best teams. Spectators are
+ * read-only connections that are not players, so they are neither counted nor sent the messages of the game.
+ * The view is built once per interval on the game actor and the same messages are queued for every spectator as
+ * non-essential messages, so a slow spectator only misses updates. Only changed messages are sent, except for a
+ * full refresh every few intervals that repairs whatever a spectator skipped. Runs as a task on the heartbeat wheel.
+ *
+ * Messages, fields separated by tabs:
+ * SPECTATE_STATE:phase, players, completed
+ * SPECTATE_QUESTION:number (0 before the first answer), text, the four options
+ * SPECTATE_ANSWERS:count of each option, timeouts, correct option (-1 while hidden)
+ * SPECTATE_TOP:username, score, username, score...
+ * SPECTATE_TEAMS:team, average score, team, average score...
+ */
+public class SpectatorFeed implements HeartbeatWheel.Task {
+    private static final long INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("kahyeet.spectatorInterval", 1000));
+    private static final int REFRESH_EVERY = 5; // Intervals between two full refreshes
+    private static final int TOP_SIZE = 10;
+    private static final int TOP_TEAMS = 5;
+
+    private final List<ClientHandler> spectators = new CopyOnWriteArrayList<>();
+    private final String[] lastSent = new String[5]; // Used by the game actor only
+    private int intervals = 0;
+
+    /**
+     * Adds a spectator and sends it the current view.
+     * @param spectator The handler of the spectator.
+     */
+    public void add(ClientHandler spectator) {
+        spectators.add(spectator);
+        Server.getActor().submit(() -> {
+            for (String message : buildView()) {
+                spectator.queueMessageToClient(message);
+            }
+            spectator.flush();
+        });
+    }
+
+    /**
+     * Removes a spectator.
+     * @param spectator The handler of the spectator.
+     * @return True if it was a spectator.
+     */
+    public boolean remove(ClientHandler spectator) {
+        return spectators.remove(spectator);
+    }
+
+    /**
+     * Gets the number of spectators.
+     * @return The number of spectators.
+     */
+    public int getCount() {
+        return spectators.size();
+    }
+
+    /**
+     * Publishes the view when spectators are watching.
+     * @param now The current value of System.nanoTime().
+     * @return The next deadline.
+     */
+    @Override
+    public long onDeadline(long now) {
+        if (!spectators.isEmpty()) {
+            Server.getActor().submit(this::publish);
+        }
+        return now + INTERVAL_NANOS;
+    }
+
+    /**
+     * Sends the messages of the view that changed since the last interval. Runs on the game actor.
+     */
+    private void publish() {
+        String[] view = buildView();
+        boolean refresh = ++intervals % REFRESH_EVERY == 0;
+        List<String> changed = new ArrayList<>();
+        for (int i = 0; i < view.length; i++) {
+            if (refresh || !view[i].equals(lastSent[i])) {
+                changed.add(view[i]);
+            }
+            lastSent[i] = view[i];
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        for (ClientHandler spectator : spectators) {
+            for (String message : changed) {
+                spectator.queueNonEssentialMessageToClient(message);
+            }
+            spectator.flush();
+        }
+    }
+
+    /**
+     * Builds the messages of the current view. Runs on the game actor, which owns the scores.
+     * @return The state, question, answers, top and teams messages.
+     */
+    private String[] buildView() {
+        String state = "SPECTATE_STATE:" + Server.getPhase() + "\t" + Server.getTotalClients() + "\t" + Server.getCompletedClients();
+
+        StringBuilder question = new StringBuilder("SPECTATE_QUESTION:");
+        StringBuilder answers = new StringBuilder("SPECTATE_ANSWERS:");
+        GameSession game = Server.getCurrentGame();
+        int current = game != null ? game.getStats().getLastQuestion() : -1;
+        if (current < 0) {
+            question.append(0);
+        } else {
+            String[] lines = game.getQuestions().get(current);
+            question.append(current + 1);
+            for (String line : lines) {
+                question.append('\t').append(line.endsWith(TextQuestionBank.CORRECT_MARKER)
+                        ? line.substring(0, line.length() - TextQuestionBank.CORRECT_MARKER.length()) : line);
+            }
+            for (int option = 0; option < TextQuestionBank.OPTION_COUNT; option++) {
+                answers.append(game.getStats().getOptionCount(current, option)).append('\t');
+            }
+            answers.append(game.getStats().getOptionCount(current, -1)).append('\t');
+            boolean reveal = !Server.isDontShowTrueAnswers() || Server.isLeaderboardShown();
+            answers.append(reveal ? game.getCorrectOption(current) : -1);
+        }
+
+        // Smallest of the best scores on top, so each player costs at most one comparison and a log-size update
+        PriorityQueue<Player> best = new PriorityQueue<>(TOP_SIZE + 1, (a, b) -> Integer.compare(a.getScore(), b.getScore()));
+        for (Player player : Server.getPlayers()) {
+            if (best.size() < TOP_SIZE) {
+                best.add(player);
+            } else if (player.getScore() > best.peek().getScore()) {
+                best.poll();
+                best.add(player);
+            }
+        }
+        List<Player> top = new ArrayList<>(best);
+        top.sort((a, b) -> Integer.compare(b.getScore(), a.getScore()));
+        StringBuilder topMessage = new StringBuilder("SPECTATE_TOP:");
+        for (int i = 0; i < top.size(); i++) {
+            if (i > 0) {
+                topMessage.append('\t');
+            }
+            topMessage.append(top.get(i).getUsername()).append('\t').append(top.get(i).getScore());
+        }
+        String teams = "SPECTATE_TEAMS:" + Server.getTeams().top(TOP_TEAMS); // Kept sorted as scores change
+        return new String[]{state, question.toString(), answers.toString(), topMessage.toString(), teams};
+    }
+}
@@ -0,0 +1,138 @@
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * StatsWindow class shows the answer statistics of the current game, refreshed live while players answer.
+ * The table reads the counters directly, so a refresh only costs the rows on screen.
+ */
+public class StatsWindow extends JFrame {
+    private static final int REFRESH_INTERVAL = 1000; // Milliseconds between two refreshes
+    private static final String[] COLUMNS = {"#", "Question", "A", "B", "C", "D", "Timeout", "Correct", "Avg (ms)"};
+
+    private final AnswerStats stats;
+    private final Timer refreshTimer;
+
+    /**
+     * Constructor for StatsWindow.
+     * @param stats The statistics of the game.
+     */
+    public StatsWindow(AnswerStats stats) {
+        this.stats = stats;
+        setTitle("Answer statistics - SERVER");
+        setSize(new Dimension(700, 400));
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+
+        AbstractTableModel model = new AbstractTableModel() {
+            @Override
+            public int getRowCount() {
+                return stats.getQuestionCount();
+            }
+
+            @Override
+            public int getColumnCount() {
+                return COLUMNS.length;
+            }
+
+            @Override
+            public String getColumnName(int column) {
+                return COLUMNS[column];
+            }
+
+            @Override
+            public Object getValueAt(int row, int column) {
+                switch (column) {
+                    case 0: return String.valueOf(row + 1);
+                    case 1: return stats.getQuestionText(row);
+                    case 6: return String.valueOf(stats.getOptionCount(row, -1));
+                    case 7: return formatCorrect(row);
+                    case 8: return String.valueOf(stats.getAverageResponseMillis(row));
+                    default: return String.valueOf(stats.getOptionCount(row, column - 2));
+                }
+            }
+        };
+
+        JTable table = new JTable(model);
+        table.getTableHeader().setReorderingAllowed(false);
+        table.getColumnModel().getColumn(0).setPreferredWidth(30);
+        table.getColumnModel().getColumn(1).setPreferredWidth(250);
+
+        // Highlight the correct option of each question
+        DefaultTableCellRenderer cellRenderer = new DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
+                JLabel cell = (JLabel) super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+                cell.setHorizontalAlignment(column == 1 ? JLabel.LEFT : JLabel.CENTER);
+                if (!isSelected) {
+                    cell.setBackground(column - 2 == stats.getCorrectOption(row) ? new Color(144, 238, 144) : Color.WHITE);
+                }
+                return cell;
+            }
+        };
+        for (int i = 0; i < table.getColumnCount(); i++) {
+            table.getColumnModel().getColumn(i).setCellRenderer(cellRenderer);
+        }
+
+        JButton exportButton = new JButton("EXPORT CSV");
+        exportButton.addActionListener(e -> exportCsv());
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        buttonPanel.add(exportButton);
+
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        // Repaint the rows periodically instead of on every answer
+        refreshTimer = new Timer(REFRESH_INTERVAL, e -> {
+            if (model.getRowCount() > 0) {
+                model.fireTableRowsUpdated(0, model.getRowCount() - 1);
+            }
+        });
+        refreshTimer.start();
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                refreshTimer.stop();
+            }
+        });
+        setVisible(true);
+    }
+
+    /**
+     * Gets the statistics shown by the window.
+     * @return The statistics.
+     */
+    public AnswerStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Formats the correct answers of a question.
+     * @param question The index of the question in the game.
+     * @return The count and rate, for example "12/20 (60%)".
+     */
+    private String formatCorrect(int question) {
+        long answers = stats.getAnswerCount(question);
+        long correct = stats.getCorrectCount(question);
+        return correct + "/" + answers + (answers > 0 ? " (" + (correct * 100 / answers) + "%)" : "");
+    }
+
+    /**
+     * Exports the statistics to a CSV file in the server directory.
+     */
+    private void exportCsv() {
+        File file = new File("answers_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".csv");
+        try {
+            stats.exportCsv(file);
+            System.out.println("Answer statistics exported to " + file.getName() + ".");
+            JOptionPane.showMessageDialog(this, "Exported to " + file.getName() + ".", "Export", JOptionPane.INFORMATION_MESSAGE);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "An error occurred while exporting the statistics.", "Error", JOptionPane.ERROR_MESSAGE);
+            e.printStackTrace();
+        }
+    }
+}
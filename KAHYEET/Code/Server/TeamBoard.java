@@ -0,0 +1,165 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * TeamBoard class keeps the standings of the teams, for competitions where each class plays as a team.
+ * The total and the number of members of a team are updated as players join, score and leave, and the teams
+ * are kept sorted in a tree, so a change costs one removal and one insertion instead of a pass over the players.
+ * Teams are ranked by their average score, so that classes of different sizes compete fairly, then by total.
+ * Used by the game actor only.
+ */
+public class TeamBoard {
+    public static final int MAX_NAME_LENGTH = 20;
+
+    // Averages are compared by cross-multiplying, so no rounding can reorder two teams
+    private static final Comparator<Team> RANKING = (a, b) -> {
+        int byAverage = Long.compare(b.total * Math.max(a.members, 1), a.total * Math.max(b.members, 1));
+        if (byAverage != 0) {
+            return byAverage;
+        }
+        int byTotal = Long.compare(b.total, a.total);
+        return byTotal != 0 ? byTotal : a.name.compareTo(b.name);
+    };
+
+    private final Map<String, Team> teams = new HashMap<>();
+    private final TreeSet<Team> ranking = new TreeSet<>(RANKING);
+
+    /**
+     * Team class holds the aggregates of one team.
+     */
+    private static class Team {
+        private final String name;
+        private long total = 0;
+        private int members = 0;
+
+        private Team(String name) {
+            this.name = name;
+        }
+
+        private long average() {
+            return members == 0 ? 0 : Math.round((double) total / members);
+        }
+    }
+
+    /**
+     * Cleans a team name sent by a client.
+     * @param team The name, or null.
+     * @return The name without tabs and surrounding spaces, cut to MAX_NAME_LENGTH, or null if nothing is left.
+     */
+    public static String normalize(String team) {
+        if (team == null) {
+            return null;
+        }
+        String name = team.replace('\t', ' ').trim();
+        if (name.length() > MAX_NAME_LENGTH) {
+            name = name.substring(0, MAX_NAME_LENGTH).trim();
+        }
+        return name.isEmpty() ? null : name;
+    }
+
+    /**
+     * Adds a player to the team of the player, if any.
+     * @param player The player.
+     */
+    public void join(Player player) {
+        if (player.getTeam() == null) {
+            return;
+        }
+        Team team = teams.computeIfAbsent(player.getTeam(), Team::new);
+        ranking.remove(team); // Removed while its key is unchanged, re-inserted at its new rank
+        team.members++;
+        team.total += player.getScore();
+        ranking.add(team);
+    }
+
+    /**
+     * Adds the points of an answer to the team of the player.
+     * @param player The player.
+     * @param points The points of the answer.
+     */
+    public void addPoints(Player player, int points) {
+        Team team = player.getTeam() != null ? teams.get(player.getTeam()) : null;
+        if (team == null || points == 0) {
+            return;
+        }
+        ranking.remove(team);
+        team.total += points;
+        ranking.add(team);
+    }
+
+    /**
+     * Removes a player from the team of the player.
+     * @param player The player.
+     * @param keepScore True to keep the player and score in the team, for a player who leaves during a game.
+     */
+    public void leave(Player player, boolean keepScore) {
+        Team team = player.getTeam() != null ? teams.get(player.getTeam()) : null;
+        if (team == null || keepScore) {
+            return;
+        }
+        ranking.remove(team);
+        team.members--;
+        team.total -= player.getScore();
+        if (team.members > 0) {
+            ranking.add(team);
+        } else {
+            teams.remove(team.name);
+        }
+    }
+
+    /**
+     * Rebuilds the teams from the connected players, for a new game.
+     * @param players The connected players.
+     */
+    public void reset(List<Player> players) {
+        teams.clear();
+        ranking.clear();
+        for (Player player : players) {
+            join(player);
+        }
+    }
+
+    /**
+     * Checks if any player is in a team.
+     * @return True if no team has been joined.
+     */
+    public boolean isEmpty() {
+        return teams.isEmpty();
+    }
+
+    /**
+     * Builds the team leaderboard sent with the scores at the end of a game.
+     * @return The TEAM_DATA messages, best team first: rank, name, total, members and average, separated by tabs.
+     */
+    public List<String> leaderboardMessages() {
+        List<String> messages = new ArrayList<>(teams.size());
+        int rank = 1;
+        for (Team team : ranking) {
+            messages.add("TEAM_DATA:" + rank++ + "\t" + team.name + "\t" + team.total + "\t" + team.members + "\t" + team.average());
+        }
+        return messages;
+    }
+
+    /**
+     * Lists the best teams with their average score.
+     * @param count The maximum number of teams.
+     * @return Names and averages, alternating and separated by tabs, best team first.
+     */
+    public String top(int count) {
+        StringBuilder top = new StringBuilder();
+        for (Team team : ranking) {
+            if (count-- == 0) {
+                break;
+            }
+            if (top.length() > 0) {
+                top.append('\t');
+            }
+            top.append(team.name).append('\t').append(team.average());
+        }
+        return top.toString();
+    }
+}
@@ -0,0 +1,103 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * TextQuestionBank class is a question bank parsed from a questions.txt file and held on the heap.
+ * Blank lines are ignored; each question is a text line followed by four options, exactly one of them
+ * marked with _@#. Questions that do not follow the format are skipped and counted.
+ * A bank is never changed once loaded, so it can be shared between threads.
+ */
+public class TextQuestionBank implements QuestionBank {
+    public static final String CORRECT_MARKER = "_@#";
+    public static final int OPTION_COUNT = 4;
+
+    private final List<String[]> questions;
+    private final int malformedCount;
+    private final boolean truncated;
+
+    /**
+     * Constructor for TextQuestionBank.
+     * @param questions The parsed questions.
+     * @param malformedCount The number of questions skipped while parsing.
+     * @param truncated True if the file ends in the middle of a question.
+     */
+    private TextQuestionBank(List<String[]> questions, int malformedCount, boolean truncated) {
+        this.questions = Collections.unmodifiableList(questions);
+        this.malformedCount = malformedCount;
+        this.truncated = truncated;
+    }
+
+    /**
+     * Parses a questions file.
+     * @param file The questions file.
+     * @return The bank.
+     * @throws IOException If the file cannot be read.
+     */
+    public static TextQuestionBank load(File file) throws IOException {
+        List<String[]> questions = new ArrayList<>();
+        int malformed = 0;
+        boolean truncated;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String[] block = new String[OPTION_COUNT + 1];
+            int lineCount = 0;
+            int markers = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (lineCount > 0 && line.endsWith(CORRECT_MARKER)) {
+                    markers++;
+                }
+                block[lineCount++] = line;
+                if (lineCount == block.length) {
+                    if (markers == 1) {
+                        questions.add(block);
+                    } else {
+                        malformed++;
+                    }
+                    block = new String[OPTION_COUNT + 1];
+                    lineCount = 0;
+                    markers = 0;
+                }
+            }
+            truncated = lineCount > 0;
+            if (truncated) {
+                malformed++; // Unfinished question at the end of the file
+            }
+        }
+        return new TextQuestionBank(questions, malformed, truncated);
+    }
+
+    @Override
+    public int size() {
+        return questions.size();
+    }
+
+    @Override
+    public String[] getQuestion(int index) {
+        return questions.get(index);
+    }
+
+    /**
+     * Gets the number of questions skipped because they did not follow the format.
+     * @return The number of malformed questions.
+     */
+    public int getMalformedCount() {
+        return malformedCount;
+    }
+
+    /**
+     * Checks if the file ended in the middle of a question, as a file still being written does.
+     * @return True if the last question is unfinished.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+}
@@ -0,0 +1,43 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TokenBucket class limits the rate of an event while allowing short bursts.
+ * The bucket is kept as nanoseconds of credit, so checking it allocates nothing and needs no division.
+ * It is not thread-safe: each bucket belongs to one thread, such as the reading thread of a connection.
+ */
+public class TokenBucket {
+    private final long nanosPerToken;
+    private final long capacityNanos;
+    private long creditNanos;
+    private long lastRefill;
+
+    /**
+     * Constructor for TokenBucket. The bucket starts full.
+     * @param tokensPerSecond The sustained rate.
+     * @param burst The number of tokens that can be taken at once.
+     */
+    public TokenBucket(double tokensPerSecond, int burst) {
+        this.nanosPerToken = (long) (TimeUnit.SECONDS.toNanos(1) / tokensPerSecond);
+        this.capacityNanos = nanosPerToken * burst;
+        this.creditNanos = capacityNanos;
+        this.lastRefill = ServerClock.nanoTime();
+    }
+
+    /**
+     * Takes a token if one is available.
+     * @param now The current value of ServerClock.nanoTime().
+     * @return True if a token was taken, false if the rate is exceeded.
+     */
+    public boolean tryAcquire(long now) {
+        long elapsed = now - lastRefill;
+        lastRefill = now;
+        if (elapsed > 0) {
+            creditNanos = Math.min(capacityNanos, creditNanos + elapsed);
+        }
+        if (creditNanos >= nanosPerToken) {
+            creditNanos -= nanosPerToken;
+            return true;
+        }
+        return false;
+    }
+}
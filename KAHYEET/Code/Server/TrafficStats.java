@@ -0,0 +1,172 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TrafficStats class counts the messages and bytes exchanged with clients per message type, to show which
+ * messages a game costs the most and guide changes to the protocol. The type of a message is its command, the
+ * uppercase word before the first ':' or the whole message when it has no fields, like PING or SHOW_LEADERBOARD.
+ * Traffic is kept since the server started and for the current game, which starts over when the lobby reopens.
+ * Counters are striped so that the writer threads and the reading threads can update them without contention.
+ */
+public class TrafficStats {
+    private static final int MAX_TYPES = 64; // Bounds the counters a client can create with made-up commands
+    private static final int MAX_TYPE_LENGTH = 32;
+    private static final String OTHER = "OTHER"; // Messages that are not commands, and types beyond MAX_TYPES
+
+    private static final TrafficStats sinceStart = new TrafficStats();
+    private static volatile TrafficStats currentGame = new TrafficStats(); // Replaced, not cleared, so no count is half reset
+
+    private final Map<String, Counter> sent = new ConcurrentHashMap<>();
+    private final Map<String, Counter> received = new ConcurrentHashMap<>();
+
+    /**
+     * Counter class holds the traffic of one message type in one direction.
+     */
+    private static class Counter {
+        private final String type;
+        private final LongAdder messages = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        private Counter(String type) {
+            this.type = type;
+        }
+    }
+
+    /**
+     * Row class is a snapshot of a counter, for the report.
+     */
+    private static class Row {
+        private final String type;
+        private final long messages;
+        private final long bytes;
+
+        private Row(String type, long messages, long bytes) {
+            this.type = type;
+            this.messages = messages;
+            this.bytes = bytes;
+        }
+    }
+
+    private TrafficStats() {
+    }
+
+    /**
+     * Counts a message written to a client.
+     * @param message The message.
+     * @param length The bytes of the message on the wire.
+     */
+    public static void recordSent(String message, int length) {
+        String type = typeOf(message);
+        sinceStart.add(sinceStart.sent, type, length);
+        TrafficStats game = currentGame;
+        game.add(game.sent, type, length);
+    }
+
+    /**
+     * Counts a line read from a client.
+     * @param message The line.
+     */
+    public static void recordReceived(String message) {
+        String type = typeOf(message);
+        int length = Outbound.encodedLength(message);
+        sinceStart.add(sinceStart.received, type, length);
+        TrafficStats game = currentGame;
+        game.add(game.received, type, length);
+    }
+
+    /**
+     * Starts counting the traffic of a new game.
+     */
+    public static void startGame() {
+        currentGame = new TrafficStats();
+    }
+
+    /**
+     * Builds a report of the traffic of the current game and since the server started.
+     * @return The report, heaviest message types first.
+     */
+    public static String report() {
+        StringBuilder report = new StringBuilder();
+        TrafficStats game = currentGame;
+        game.append(report, "Traffic this game");
+        sinceStart.append(report, "Traffic since start");
+        return report.toString();
+    }
+
+    /**
+     * Finds the type of a message.
+     * @param message The message.
+     * @return The command of the message, or OTHER.
+     */
+    static String typeOf(String message) {
+        int length = 0;
+        while (length < message.length() && length <= MAX_TYPE_LENGTH) {
+            char c = message.charAt(length);
+            if ((c < 'A' || c > 'Z') && (c < '0' || c > '9') && c != '_') {
+                break;
+            }
+            length++;
+        }
+        if (length == 0 || length > MAX_TYPE_LENGTH || (length < message.length() && message.charAt(length) != ':')) {
+            return OTHER;
+        }
+        return message.substring(0, length);
+    }
+
+    /**
+     * Adds a message to the counter of its type.
+     * @param counters The counters of the direction.
+     * @param type The type of the message.
+     * @param length The bytes of the message.
+     */
+    private void add(Map<String, Counter> counters, String type, int length) {
+        Counter counter = counters.get(type);
+        if (counter == null) {
+            if (counters.size() >= MAX_TYPES) {
+                type = OTHER;
+            }
+            counter = counters.computeIfAbsent(type, Counter::new);
+        }
+        counter.messages.increment();
+        counter.bytes.add(length);
+    }
+
+    /**
+     * Appends the counters of both directions to a report.
+     * @param report The report.
+     * @param title The title of the section.
+     */
+    private void append(StringBuilder report, String title) {
+        report.append(title).append(":\n");
+        append(report, "Sent", sent);
+        append(report, "Received", received);
+    }
+
+    /**
+     * Appends the counters of one direction to a report, heaviest type first.
+     * @param report The report.
+     * @param direction The name of the direction.
+     * @param counters The counters of the direction.
+     */
+    private static void append(StringBuilder report, String direction, Map<String, Counter> counters) {
+        List<Row> rows = new ArrayList<>(counters.size()); // Read once, so the sort and the totals see the same values
+        long totalMessages = 0;
+        long totalBytes = 0;
+        for (Counter counter : counters.values()) {
+            Row row = new Row(counter.type, counter.messages.sum(), counter.bytes.sum());
+            rows.add(row);
+            totalMessages += row.messages;
+            totalBytes += row.bytes;
+        }
+        rows.sort((a, b) -> Long.compare(b.bytes, a.bytes));
+        report.append("  ").append(direction).append(": ").append(totalMessages).append(" messages, ").append(totalBytes).append(" B\n");
+        for (Row row : rows) {
+            report.append("    ").append(row.type).append(": ").append(row.messages).append(" messages, ")
+                  .append(row.bytes).append(" B (").append(totalBytes == 0 ? 0 : row.bytes * 100 / totalBytes).append("%, ")
+                  .append(row.messages == 0 ? 0 : row.bytes / row.messages).append(" B each)\n");
+        }
+    }
+}